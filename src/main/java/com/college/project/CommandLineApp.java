@@ -2,6 +2,8 @@ package com.college.project;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.concurrent.TimeUnit;
@@ -12,13 +14,19 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import com.college.project.gallery.GalleryIndex;
+import com.college.project.imaging.ImageDecoder;
+import com.college.project.model.GalleryMatch;
 import com.college.project.model.StudentDetails;
 import com.college.project.model.VerificationResult;
 import com.college.project.service.CameraService;
 import com.college.project.service.FaceVerificationService;
+import com.college.project.service.GalleryIndexService;
+import com.college.project.service.GallerySearchService;
 import com.college.project.service.PDFService;
 import com.college.project.service.ReportGenerationService;
 
@@ -42,6 +50,15 @@ public class CommandLineApp implements CommandLineRunner {
 
     @Autowired
     private ReportGenerationService reportGenerationService;
+
+    @Autowired
+    private GallerySearchService gallerySearchService;
+
+    @Autowired
+    private GalleryIndexService galleryIndexService;
+
+    @Value("${app.gallery.search.top-k:5}")
+    private int searchTopK;
     
     // Store student details from PDF processing
     private StudentDetails extractedStudentDetails;
@@ -103,8 +120,8 @@ public class CommandLineApp implements CommandLineRunner {
                 return;
             }
 
-            String processResult = processMultiStudentIdCards(multiIdCardsFile);
-            if (processResult == null) {
+            GalleryIndex galleryIndex = loadGalleryIndex(multiIdCardsFile);
+            if (galleryIndex == null) {
                 System.out.println("❌ Failed to process multi-student ID cards PDF. Exiting...");
                 return;
             }
@@ -112,7 +129,7 @@ public class CommandLineApp implements CommandLineRunner {
             // Step 3: Face Matching and ID Card Extraction
             System.out.println("\n🔍 STEP 3: FACE MATCHING AND ID CARD EXTRACTION");
             System.out.println("-".repeat(50));
-            String matchedIdCardPath = findAndExtractMatchingIdCard(studentImagePath);
+            String matchedIdCardPath = findAndExtractMatchingIdCard(studentImagePath, galleryIndex);
 
             if (matchedIdCardPath != null) {
                 System.out.println("\n✅ MATCHING ID CARD FOUND AND EXTRACTED!");
@@ -291,10 +308,13 @@ public class CommandLineApp implements CommandLineRunner {
             System.out.println("📁 Source: " + sourceFile.getAbsolutePath());
             System.out.println("📁 Saved to: " + destinationPath);
             
-            // Validate image can be read
+            // Validate image can be read; the header is enough, pixels are decoded later
             try {
-                javax.imageio.ImageIO.read(new File(destinationPath));
-                System.out.println("✅ Image format validated successfully");
+                if (ImageDecoder.readDimensions(new File(destinationPath)) != null) {
+                    System.out.println("✅ Image format validated successfully");
+                } else {
+                    System.out.println("⚠️ Warning: Could not validate image format: unsupported image type");
+                }
             } catch (IOException | RuntimeException e) {
                 System.out.println("⚠️ Warning: Could not validate image format: " + e.getMessage());
             }
@@ -568,9 +588,55 @@ public class CommandLineApp implements CommandLineRunner {
     }
 
     /**
-     * Process multi-student ID cards PDF and extract individual ID cards
+     * Map the gallery index for the multi-student PDF, rebuilding it only when the PDF
+     * or the face feature settings have changed
      */
-    private String processMultiStudentIdCards(File multiIdCardsFile) {
+    private GalleryIndex loadGalleryIndex(File multiIdCardsFile) {
+        Map<String, Object> indexStatus = galleryIndexService.openIndex(multiIdCardsFile);
+        if (!(Boolean) indexStatus.get("success")) {
+            System.out.println("❌ " + indexStatus.get("message"));
+            return null;
+        }
+        
+        if ((Boolean) indexStatus.get("upToDate")) {
+            GalleryIndex galleryIndex = (GalleryIndex) indexStatus.get("index");
+            System.out.println("⚡ Gallery index is up to date (" + galleryIndex.size()
+                             + " ID cards) - skipping PDF processing");
+            return galleryIndex;
+        }
+        
+        System.out.println("🔄 " + indexStatus.get("message") + " - building gallery index");
+        List<String> idCardImages = processMultiStudentIdCards(multiIdCardsFile);
+        if (idCardImages == null) {
+            return null;
+        }
+        
+        // Student details for each card, referenced from the index
+        List<StudentDetails> students = new ArrayList<>();
+        for (int i = 0; i < idCardImages.size(); i++) {
+            StudentDetails student = new StudentDetails();
+            student.setName("Student_" + (i + 1));
+            student.setRegisterNumber("CSE" + String.format("%03d", i + 1));
+            student.setDepartment("CSE");
+            students.add(student);
+        }
+        
+        Map<String, Object> buildResult = galleryIndexService.buildIndex(
+            (String) indexStatus.get("sourceHash"), idCardImages, students);
+        if (!(Boolean) buildResult.get("success")) {
+            System.out.println("❌ " + buildResult.get("message"));
+            return null;
+        }
+        
+        System.out.println("✅ " + buildResult.get("message"));
+        return (GalleryIndex) buildResult.get("index");
+    }
+
+    /**
+     * Process multi-student ID cards PDF and extract individual ID cards.
+     * Returns the paths of the extracted ID card photos, or null on failure.
+     */
+    private List<String> processMultiStudentIdCards(File multiIdCardsFile) {
         try {
             System.out.println("🔄 Processing multi-student ID cards PDF: " + multiIdCardsFile.getName());
             System.out.println("📊 This PDF contains ID cards from CSE department (3 classes)");
@@ -602,6 +668,8 @@ public class CommandLineApp implements CommandLineRunner {
             @SuppressWarnings("unchecked")
             Map<String, Object> processingResults = (Map<String, Object>) result.get("processingResults");
             
+            List<String> idCardImages = new ArrayList<>();
+            
             @SuppressWarnings("unchecked")
             Map<String, Object> images = (Map<String, Object>) processingResults.get("images");
             if (images != null && (Boolean) images.get("success")) {
@@ -615,12 +683,18 @@ public class CommandLineApp implements CommandLineRunner {
                     for (int i = 0; i < imagesList.size(); i++) {
                         Map<String, Object> imageInfo = imagesList.get(i);
                         System.out.println("   - ID Card " + (i + 1) + ": " + imageInfo.get("path"));
+                        idCardImages.add((String) imageInfo.get("path"));
                     }
                 }
             }
             
+            if (idCardImages.isEmpty()) {
+                System.out.println("⚠️ No ID card images found in the PDF");
+                return null;
+            }
+            
             System.out.println("✅ Multi-student ID cards PDF processed successfully!");
-            return "processed"; // Return success indicator
+            return idCardImages;
             
         } catch (Exception e) {
             logger.error("Error processing multi-student ID cards PDF: {}", e.getMessage());
@@ -632,67 +706,60 @@ public class CommandLineApp implements CommandLineRunner {
     /**
      * Find and extract the matching ID card from all processed ID cards
      */
-    private String findAndExtractMatchingIdCard(String studentImagePath) {
+    private String findAndExtractMatchingIdCard(String studentImagePath, GalleryIndex galleryIndex) {
         try {
             System.out.println("🔄 Searching for matching face in all CSE student ID cards...");
             System.out.println("📸 Your image: " + studentImagePath);
             
-            // Find all extracted images from uploads folder
-            File uploadsDir = new File("uploads");
-            if (!uploadsDir.exists()) {
-                System.out.println("⚠️ No extracted images found from PDF processing");
+            if (galleryIndex.size() == 0) {
+                System.out.println("⚠️ No ID card photos in the gallery index");
                 return null;
             }
             
-            File[] imageFiles = uploadsDir.listFiles((dir, name) -> 
-                name.toLowerCase().endsWith(".jpg") || name.toLowerCase().endsWith(".png"));
+            System.out.println("🔍 Comparing your face with " + galleryIndex.size() + " ID card photos using "
+                             + gallerySearchService.getParallelism() + " worker(s) ("
+                             + faceVerificationService.getComparisonMethod().getLabel() + ")...");
             
-            if (imageFiles == null || imageFiles.length == 0) {
-                System.out.println("⚠️ No ID card images found in uploads folder");
+            // Featurize the probe once and score the indexed gallery in parallel
+            Map<String, Object> searchResult = gallerySearchService.search(studentImagePath, galleryIndex, searchTopK);
+            if (!(Boolean) searchResult.get("success")) {
+                System.out.println("❌ Face search failed: " + searchResult.get("message"));
                 return null;
             }
             
-            System.out.println("🔍 Comparing your face with " + imageFiles.length + " ID card photos...");
+            System.out.println("⚡ " + searchResult.get("searched") + " card(s) scored in full, "
+                             + searchResult.get("quantizedRejected") + " narrowed out by the int8 pass, "
+                             + searchResult.get("prefilterRejected") + " rejected by perceptual hash ("
+                             + searchResult.get("strategy") + ")");
+            if ((Integer) searchResult.get("boundRejected") > 0) {
+                System.out.println("⚡ " + searchResult.get("boundRejected")
+                                 + " card(s) rejected by the cascade geometry stage without a full score");
+            }
+            
+            @SuppressWarnings("unchecked")
+            List<GalleryMatch> topMatches = (List<GalleryMatch>) searchResult.get("matches");
+            int matchCount = (Integer) searchResult.get("matchCount");
+            
+            System.out.println("🏆 Top " + topMatches.size() + " candidate(s):");
+            for (GalleryMatch candidate : topMatches) {
+                System.out.println("   " + candidate.getRank() + ". " + new File(candidate.getImagePath()).getName()
+                                 + " → Confidence: " + String.format("%.1f%%", candidate.getConfidence())
+                                 + (candidate.isMatch() ? " ✅ MATCH" : " ❌ No match"));
+            }
             
             String bestMatchPath = null;
             double bestConfidence = 0.0;
             StudentDetails bestMatchStudent = null;
-            int matchCount = 0;
             
-            // Compare with each extracted ID card image
-            for (int i = 0; i < imageFiles.length; i++) {
-                String idCardImagePath = imageFiles[i].getPath();
-                System.out.println("   Checking ID Card " + (i + 1) + "/" + imageFiles.length + ": " + imageFiles[i].getName());
-                
-                try {
-                    // Create a temporary student details for this comparison
-                    StudentDetails tempStudent = new StudentDetails();
-                    tempStudent.setName("Student_" + (i + 1));
-                    tempStudent.setRegisterNumber("CSE" + String.format("%03d", i + 1));
-                    tempStudent.setDepartment("CSE");
-                    
-                    // Perform face verification
-                    VerificationResult verificationResult = faceVerificationService.verifyIdentity(
-                        studentImagePath, idCardImagePath, tempStudent);
-                    
-                    double confidence = verificationResult.getConfidence();
-                    boolean isMatch = verificationResult.isMatch();
-                    
-                    System.out.println("      → Confidence: " + String.format("%.1f%%", confidence) + 
-                                     (isMatch ? " ✅ MATCH" : " ❌ No match"));
-                    
-                    if (isMatch && confidence > bestConfidence) {
-                        bestConfidence = confidence;
-                        bestMatchPath = idCardImagePath;
-                        bestMatchStudent = tempStudent;
-                        matchCount++;
-                    }
-                    
-                } catch (Exception e) {
-                    System.out.println("      → Error comparing with this ID card: " + e.getMessage());
-                }
+            if (!topMatches.isEmpty() && topMatches.get(0).isMatch()) {
+                GalleryMatch best = topMatches.get(0);
+                bestMatchPath = best.getImagePath();
+                bestConfidence = best.getConfidence();
+                bestMatchStudent = best.getStudentDetails();
             }
             
+            logger.info("Feature cache after gallery search: {}", faceVerificationService.getFeatureCacheStats());
+
             if (bestMatchPath != null) {
                 System.out.println("\n🎯 BEST MATCH FOUND!");
                 System.out.println("📸 Matching ID card: " + bestMatchPath);
@@ -710,7 +777,7 @@ public class CommandLineApp implements CommandLineRunner {
                 return extractedPdfPath;
             } else {
                 System.out.println("\n❌ NO MATCHING FACE FOUND");
-                System.out.println("Your face does not match any of the " + imageFiles.length + " CSE student ID cards.");
+                System.out.println("Your face does not match any of the " + galleryIndex.size() + " CSE student ID cards.");
                 System.out.println("💡 Possible reasons:");
                 System.out.println("   - You are not a CSE student in this batch");
                 System.out.println("   - Image quality is too low");
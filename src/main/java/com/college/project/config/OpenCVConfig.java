@@ -1,5 +1,10 @@
 package com.college.project.config;
 
+import com.college.project.imaging.FaceDetector;
+import com.college.project.imaging.FaceMatcher;
+import com.college.project.imaging.JavaFaceMatcher;
+import com.college.project.imaging.OpenCvFaceMatcher;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.boot.CommandLineRunner;
@@ -14,29 +19,65 @@ import org.slf4j.LoggerFactory;
 public class OpenCVConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(OpenCVConfig.class);
-    private static boolean openCVLoaded = false;
+    private static volatile boolean openCVLoaded = false;
+    private static boolean loadAttempted = false;
 
     /**
      * Initialize OpenCV native library on application startup
      */
     @Bean
     public CommandLineRunner initOpenCV() {
-        return args -> {
+        return args -> ensureOpenCVLoaded();
+    }
+
+    /**
+     * Face matcher used for detection: OpenCV's cascade classifier when the native
+     * library loaded and a cascade file is configured, otherwise the Java detector
+     */
+    @Bean
+    public FaceMatcher faceMatcher(@Value("${app.face.detector.working-size:256}") int workingSize,
+                                   @Value("${app.face.detector.scale-factor:1.25}") double scaleFactor,
+                                   @Value("${app.face.detector.min-neighbors:2}") int minNeighbors,
+                                   @Value("${app.face.opencv.cascade-file:}") String cascadeFile) {
+        if (ensureOpenCVLoaded()) {
+            if (cascadeFile.isBlank()) {
+                logger.info("💡 OpenCV is loaded; set app.face.opencv.cascade-file to use its face detector.");
+            } else {
+                try {
+                    FaceMatcher matcher = OpenCvFaceMatcher.create(cascadeFile, workingSize, scaleFactor, minNeighbors);
+                    logger.info("✅ Using OpenCV face matcher ({})", cascadeFile);
+                    return matcher;
+                } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                    logger.warn("⚠️  OpenCV face matcher unavailable: {}. Using Java face matcher.", e.getMessage());
+                }
+            }
+        }
+        logger.info("✅ Using Java face matcher");
+        return new JavaFaceMatcher(new FaceDetector(workingSize, scaleFactor, minNeighbors));
+    }
+
+    /**
+     * Load the native library the first time it is needed; later calls return the outcome
+     */
+    private static synchronized boolean ensureOpenCVLoaded() {
+        if (!loadAttempted) {
+            loadAttempted = true;
             try {
                 // Try to load OpenCV native library using different methods
                 loadOpenCVLibrary();
-                
+
             } catch (Exception e) {
                 logger.warn("⚠️  OpenCV initialization failed: {}. Using fallback methods.", e.getMessage());
                 openCVLoaded = false;
             }
-        };
+        }
+        return openCVLoaded;
     }
 
     /**
      * Attempt to load OpenCV library using multiple methods
      */
-    private void loadOpenCVLibrary() {
+    private static void loadOpenCVLibrary() {
         // Method 1: Try to load bundled OpenCV
         try {
             System.loadLibrary("opencv_java480");
@@ -60,15 +101,19 @@ public class OpenCVConfig {
             }
         }
 
-        // Method 3: Try to load from system path
+        // Method 3: Load the native library named by the OpenCV classes on the classpath
         try {
-            // This will be handled by the OpenCV Maven dependency
-            Class.forName("org.opencv.core.Core");
+            // Classes alone are not enough; every Mat call needs the native library
+            Class<?> core = Class.forName("org.opencv.core.Core");
+            String libraryName = (String) core.getField("NATIVE_LIBRARY_NAME").get(null);
+            System.loadLibrary(libraryName);
             openCVLoaded = true;
-            logger.info("✅ OpenCV classes found in classpath");
+            logger.info("✅ OpenCV loaded successfully ({})", libraryName);
             return;
-        } catch (ClassNotFoundException e) {
+        } catch (ReflectiveOperationException e) {
             logger.debug("OpenCV classes not found in classpath");
+        } catch (UnsatisfiedLinkError e) {
+            logger.debug("OpenCV classes found but native library missing: {}", e.getMessage());
         }
 
         // If all methods fail, log warning but continue
@@ -89,7 +134,7 @@ public class OpenCVConfig {
      */
     @Bean
     public String openCVStatus() {
-        return openCVLoaded ? "OpenCV loaded and ready" : "OpenCV not available - using fallback methods";
+        return ensureOpenCVLoaded() ? "OpenCV loaded and ready" : "OpenCV not available - using fallback methods";
     }
 
     /**
@@ -97,7 +142,7 @@ public class OpenCVConfig {
      */
     @Bean
     public OpenCVInfo openCVInfo() {
-        return new OpenCVInfo(openCVLoaded, "Face detection ready");
+        return new OpenCVInfo(ensureOpenCVLoaded(), "Face detection ready");
     }
 
     /**
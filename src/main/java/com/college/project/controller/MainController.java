@@ -41,6 +41,9 @@ public class MainController {
         endpoints.put("POST /api/extract-text", "Extract text from PDF");
         endpoints.put("POST /api/extract-images", "Extract images from PDF");
         endpoints.put("POST /api/compare-faces", "Compare two face images");
+        endpoints.put("POST /api/compare-batch", "Compare one probe image against many candidates");
+        endpoints.put("GET /api/feature-cache", "Feature cache hit/miss/eviction statistics");
+        endpoints.put("GET /api/buffer-arena", "Pooled scratch buffer reuse statistics");
         endpoints.put("GET /health", "System health check");
 
         apiInfo.put("endpoints", endpoints);
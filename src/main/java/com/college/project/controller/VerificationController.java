@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -20,7 +22,9 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.college.project.imaging.DecodedImage;
 import com.college.project.model.ApiResponse;
+import com.college.project.model.ComparisonMethod;
 import com.college.project.model.StudentDetails;
 import com.college.project.model.VerificationResult;
 import com.college.project.service.FaceVerificationService;
@@ -171,9 +175,27 @@ public class VerificationController {
             // Convert student details map to object
             StudentDetails studentDetails = mapToStudentDetails(studentDetailsMap);
 
+            // Decode each image once and share it between quality checks and verification
+            Map<String, Object> cameraLoad = faceVerificationService.loadImage(cameraImagePath);
+            if (!(Boolean) cameraLoad.get("success")) {
+                return ResponseEntity.badRequest().body(ApiResponse.error(
+                    "Camera image: " + cameraLoad.get("message"),
+                    (String) cameraLoad.get("errorCode")));
+            }
+
+            Map<String, Object> idCardLoad = faceVerificationService.loadImage(idCardImagePath);
+            if (!(Boolean) idCardLoad.get("success")) {
+                return ResponseEntity.badRequest().body(ApiResponse.error(
+                    "ID card image: " + idCardLoad.get("message"),
+                    (String) idCardLoad.get("errorCode")));
+            }
+
+            DecodedImage cameraImage = (DecodedImage) cameraLoad.get("image");
+            DecodedImage idCardImage = (DecodedImage) idCardLoad.get("image");
+
             // Validate image quality
-            Map<String, Object> cameraQuality = faceVerificationService.validateImageQuality(cameraImagePath);
-            Map<String, Object> idCardQuality = faceVerificationService.validateImageQuality(idCardImagePath);
+            Map<String, Object> cameraQuality = faceVerificationService.validateImageQuality(cameraImage);
+            Map<String, Object> idCardQuality = faceVerificationService.validateImageQuality(idCardImage);
 
             if (!(Boolean) cameraQuality.get("valid") || !(Boolean) idCardQuality.get("valid")) {
                 String message = "Image quality issues detected: ";
@@ -190,7 +212,7 @@ public class VerificationController {
 
             // Perform identity verification
             VerificationResult verificationResult = faceVerificationService.verifyIdentity(
-                cameraImagePath, idCardImagePath, studentDetails);
+                cameraImage, idCardImage, studentDetails);
 
             return ResponseEntity.ok(ApiResponse.success(
                 verificationResult.getMessage(), verificationResult));
@@ -326,7 +348,20 @@ public class VerificationController {
                     "IMAGE2_NOT_FOUND"));
             }
 
-            VerificationResult result = faceVerificationService.compareFaces(image1Path, image2Path);
+            String method = request.get("method");
+            VerificationResult result;
+            if (method == null) {
+                result = faceVerificationService.compareFaces(image1Path, image2Path);
+            } else {
+                ComparisonMethod comparisonMethod;
+                try {
+                    comparisonMethod = ComparisonMethod.fromValue(method);
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.badRequest().body(ApiResponse.error(
+                        e.getMessage(), "INVALID_METHOD"));
+                }
+                result = faceVerificationService.compareFaces(image1Path, image2Path, comparisonMethod);
+            }
 
             return ResponseEntity.ok(ApiResponse.success(
                 result.getMessage(), result));
@@ -339,6 +374,105 @@ public class VerificationController {
         }
     }
 
+    /**
+     * Compare one probe image against a list of candidate images
+     * POST /api/compare-batch
+     */
+    @PostMapping("/compare-batch")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> compareBatch(
+            @RequestBody Map<String, Object> request) {
+        try {
+            logger.info("Batch face comparison requested");
+
+            Object probe = request.get("probePath");
+            Object candidates = request.get("candidatePaths");
+
+            if (!(probe instanceof String probePath) || probePath.trim().isEmpty()) {
+                return ResponseEntity.badRequest().body(ApiResponse.error(
+                    "probePath is required", "MISSING_PROBE_PATH"));
+            }
+
+            if (!(candidates instanceof List<?> candidateList) || candidateList.isEmpty()) {
+                return ResponseEntity.badRequest().body(ApiResponse.error(
+                    "candidatePaths must be a non-empty list", "MISSING_CANDIDATE_PATHS"));
+            }
+
+            if (!new File(probePath).exists()) {
+                return ResponseEntity.badRequest().body(ApiResponse.error(
+                    "Probe image not found: " + probePath,
+                    "PROBE_NOT_FOUND"));
+            }
+
+            List<String> candidatePaths = new ArrayList<>(candidateList.size());
+            for (Object candidate : candidateList) {
+                if (!(candidate instanceof String candidatePath)) {
+                    return ResponseEntity.badRequest().body(ApiResponse.error(
+                        "candidatePaths must contain only strings", "INVALID_CANDIDATE_PATHS"));
+                }
+                candidatePaths.add(candidatePath);
+            }
+
+            Object topK = request.getOrDefault("topK", 0);
+            Object minConfidence = request.getOrDefault("minConfidence", 0);
+            if (!(topK instanceof Number) || !(minConfidence instanceof Number)) {
+                return ResponseEntity.badRequest().body(ApiResponse.error(
+                    "topK and minConfidence must be numbers", "INVALID_BATCH_OPTIONS"));
+            }
+
+            Object method = request.get("method");
+            Map<String, Object> result;
+            if (method == null) {
+                result = faceVerificationService.compareBatch(probePath, candidatePaths,
+                    ((Number) topK).intValue(), ((Number) minConfidence).doubleValue());
+            } else {
+                ComparisonMethod comparisonMethod;
+                try {
+                    comparisonMethod = ComparisonMethod.fromValue(String.valueOf(method));
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.badRequest().body(ApiResponse.error(
+                        e.getMessage(), "INVALID_METHOD"));
+                }
+                result = faceVerificationService.compareBatch(probePath, candidatePaths, comparisonMethod,
+                    ((Number) topK).intValue(), ((Number) minConfidence).doubleValue());
+            }
+
+            if ((Boolean) result.get("success")) {
+                return ResponseEntity.ok(ApiResponse.success(
+                    (String) result.get("message"), result));
+            } else {
+                return ResponseEntity.badRequest().body(ApiResponse.error(
+                    (String) result.get("message"),
+                    (String) result.get("errorCode")));
+            }
+
+        } catch (RuntimeException e) {
+            logger.error("Error in compare_batch endpoint: {}", e.getMessage());
+            return ResponseEntity.internalServerError().body(ApiResponse.error(
+                "Batch face comparison failed: " + e.getMessage(),
+                "BATCH_COMPARISON_EXCEPTION"));
+        }
+    }
+
+    /**
+     * Feature cache statistics
+     * GET /api/feature-cache
+     */
+    @GetMapping("/feature-cache")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getFeatureCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(
+            "Feature cache statistics", faceVerificationService.getFeatureCacheStats()));
+    }
+
+    /**
+     * Scratch buffer arena statistics
+     * GET /api/buffer-arena
+     */
+    @GetMapping("/buffer-arena")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getBufferArenaStats() {
+        return ResponseEntity.ok(ApiResponse.success(
+            "Buffer arena statistics", faceVerificationService.getBufferArenaStats()));
+    }
+
     /**
      * Convert Map to StudentDetails object
      */
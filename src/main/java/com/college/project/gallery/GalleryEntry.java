@@ -0,0 +1,53 @@
+package com.college.project.gallery;
+
+import com.college.project.model.FaceFeatureVector;
+import com.college.project.model.StudentDetails;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Gallery Entry
+ * One enrolled ID card photo: where it lives, whose card it is and its features.
+ * Only the path and student details go to the details file, as JSON; features live in the index file.
+ */
+public class GalleryEntry {
+
+    private String imagePath;
+    private StudentDetails studentDetails;
+
+    @JsonIgnore
+    private FaceFeatureVector features;
+
+    public GalleryEntry() {}
+
+    public GalleryEntry(String imagePath, StudentDetails studentDetails, FaceFeatureVector features) {
+        this.imagePath = imagePath;
+        this.studentDetails = studentDetails;
+        this.features = features;
+    }
+
+    // Getters and Setters
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    public void setImagePath(String imagePath) {
+        this.imagePath = imagePath;
+    }
+
+    public StudentDetails getStudentDetails() {
+        return studentDetails;
+    }
+
+    public void setStudentDetails(StudentDetails studentDetails) {
+        this.studentDetails = studentDetails;
+    }
+
+    @JsonIgnore
+    public FaceFeatureVector getFeatures() {
+        return features;
+    }
+
+    public void setFeatures(FaceFeatureVector features) {
+        this.features = features;
+    }
+}
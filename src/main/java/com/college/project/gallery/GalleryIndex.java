@@ -0,0 +1,506 @@
+package com.college.project.gallery;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+import java.util.List;
+
+import com.college.project.model.ColorHistogram;
+import com.college.project.model.FaceFeatureVector;
+import com.college.project.model.LbpHistogram;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Gallery Index
+ * Persistent, memory-mapped store of fixed-width gallery feature records. Both files
+ * live outside the Java heap, so the heap cost of a gallery does not grow with its size
+ * and search scans records in place without creating an object per record.
+ *
+ * <pre>
+ * header (128 bytes): magic, version, dimensions, record count, record size,
+ *                     SHA-256 of the source PDF (32 bytes), feature settings fingerprint (int),
+ *                     details file size (long), LBP grid size (int, 0 = no texture histograms)
+ * record (fixed)    : double[dimensions] features, long perceptual hash,
+ *                     long details offset, int details length, int flags,
+ *                     short[ColorHistogram.BINS] colour histogram (zero unless HAS_COLOR_HISTOGRAM is set),
+ *                     float[grid * grid * LbpHistogram.BINS] LBP histogram (zero unless HAS_LBP_HISTOGRAM is set)
+ * </pre>
+ *
+ * The details file holds each entry's image path and student details as UTF-8 JSON,
+ * back to back; a record points at its entry by offset and length, and entries are
+ * only parsed for the matches a search returns. Files above 2 GB are mapped as several
+ * segments, none of which splits a record or a details entry.
+ */
+public final class GalleryIndex {
+
+    public static final int MAGIC = 0x46474958; // "FGIX"
+    // Bumped whenever the record layout or the way gallery features are computed changes
+    public static final int VERSION = 10;
+
+    // Record flags
+    private static final int HAS_COLOR_HISTOGRAM = 1;
+    private static final int HAS_LBP_HISTOGRAM = 2;
+
+    private static final int HEADER_SIZE = 128;
+    private static final int HASH_OFFSET = 20;
+    private static final int HASH_LENGTH = 32;
+    private static final int SETTINGS_OFFSET = 52;
+    private static final int DETAILS_SIZE_OFFSET = 56;
+    private static final int LBP_GRID_OFFSET = 64;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    // Largest single mapping; a ByteBuffer is indexed by int
+    private static final long SEGMENT_BYTES = Integer.MAX_VALUE;
+
+    // Field offsets within a record, after the features
+    private static final int HASH_FIELD = 0;
+    private static final int DETAILS_OFFSET_FIELD = HASH_FIELD + Long.BYTES;
+    private static final int DETAILS_LENGTH_FIELD = DETAILS_OFFSET_FIELD + Long.BYTES;
+    private static final int FLAGS_FIELD = DETAILS_LENGTH_FIELD + Integer.BYTES;
+    private static final int COLOR_FIELD = FLAGS_FIELD + Integer.BYTES;
+    private static final int LBP_FIELD = COLOR_FIELD + ColorHistogram.BINS * Short.BYTES;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ByteBuffer[] segments;
+    private final int recordsPerSegment;
+    private final ByteBuffer[] detailSegments;
+    private final int dimensions;
+    private final int count;
+    private final int recordSize;
+    private final int featureBytes;
+    private final int lbpGridSize;
+    private final String sourceHash;
+    private final int settingsFingerprint;
+
+    private GalleryIndex(ByteBuffer[] segments, int recordsPerSegment, ByteBuffer[] detailSegments,
+                         int dimensions, int count, int recordSize, int lbpGridSize, String sourceHash,
+                         int settingsFingerprint) {
+        this.segments = segments;
+        this.recordsPerSegment = recordsPerSegment;
+        this.detailSegments = detailSegments;
+        this.dimensions = dimensions;
+        this.count = count;
+        this.recordSize = recordSize;
+        this.featureBytes = dimensions * Double.BYTES;
+        this.lbpGridSize = lbpGridSize;
+        this.sourceHash = sourceHash;
+        this.settingsFingerprint = settingsFingerprint;
+    }
+
+    /**
+     * Read and validate an index header without mapping anything, so a stale index can be
+     * recognised and replaced without leaving a live mapping on the file. Throws IOException
+     * if the file is truncated or was written with a different layout.
+     */
+    public static Header readHeader(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            return readHeader(channel);
+        }
+    }
+
+    private static Header readHeader(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            throw new IOException("Gallery index is truncated");
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Gallery index is truncated");
+            }
+        }
+
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a gallery index file");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported gallery index version " + header.getInt(4));
+        }
+
+        int dimensions = header.getInt(8);
+        int count = header.getInt(12);
+        int recordSize = header.getInt(16);
+        int lbpGridSize = header.getInt(LBP_GRID_OFFSET);
+        if (dimensions != FaceFeatureVector.DIMENSIONS || lbpGridSize < 0
+                || recordSize != recordSize(dimensions, lbpGridSize)) {
+            throw new IOException("Gallery index was built with a different feature layout");
+        }
+        if ((long) HEADER_SIZE + (long) count * recordSize != size) {
+            throw new IOException("Gallery index size does not match its record count");
+        }
+
+        byte[] hash = new byte[HASH_LENGTH];
+        header.get(HASH_OFFSET, hash);
+        return new Header(dimensions, count, recordSize, lbpGridSize, HexFormat.of().formatHex(hash),
+                          header.getInt(SETTINGS_OFFSET), header.getLong(DETAILS_SIZE_OFFSET));
+    }
+
+    /**
+     * Map an existing index and its details file. Throws IOException if either is
+     * missing, truncated or was written with a different layout. Callers that may replace
+     * a stale index should check {@link #readHeader(Path)} first, since a mapped file
+     * cannot be replaced on every platform until the mapping is collected.
+     */
+    public static GalleryIndex open(Path indexFile, Path detailsFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            int recordSize = header.recordSize;
+
+            // The mappings stay valid after the channels are closed
+            int recordsPerSegment = (int) (SEGMENT_BYTES / recordSize);
+            ByteBuffer[] segments = map(channel, HEADER_SIZE, (long) header.count * recordSize,
+                                        (long) recordsPerSegment * recordSize);
+            ByteBuffer[] detailSegments;
+            try (FileChannel details = FileChannel.open(detailsFile, StandardOpenOption.READ)) {
+                if (details.size() != header.detailsSize) {
+                    throw new IOException("Gallery index and student details are out of sync");
+                }
+                detailSegments = map(details, 0, header.detailsSize, SEGMENT_BYTES);
+            }
+
+            return new GalleryIndex(segments, recordsPerSegment, detailSegments, header.dimensions, header.count,
+                                    recordSize, header.lbpGridSize, header.sourceHash, header.settingsFingerprint);
+        }
+    }
+
+    /**
+     * Map length bytes from position as consecutive read-only segments of at most segmentBytes each
+     */
+    private static ByteBuffer[] map(FileChannel channel, long position, long length, long segmentBytes)
+            throws IOException {
+        int segmentCount = (int) Math.max(1, (length + segmentBytes - 1) / segmentBytes);
+        ByteBuffer[] segments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long offset = i * segmentBytes;
+            long size = Math.min(segmentBytes, length - offset);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + offset, size)
+                                 .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return segments;
+    }
+
+    /**
+     * Write a new index and details file for the given entries. Files are written
+     * next to their targets and moved into place so readers never see a partial index.
+     * LBP histograms are stored when the entries carry them, and must then share one grid.
+     */
+    public static void write(Path indexFile, Path detailsFile, String sourceHash, int settingsFingerprint,
+                             List<GalleryEntry> entries) throws IOException {
+        int dimensions = FaceFeatureVector.DIMENSIONS;
+        int lbpGridSize = 0;
+        for (GalleryEntry entry : entries) {
+            LbpHistogram texture = entry.getFeatures().getLbpHistogram();
+            if (texture == null) {
+                continue;
+            }
+            if (lbpGridSize == 0) {
+                lbpGridSize = texture.getGridSize();
+            } else if (texture.getGridSize() != lbpGridSize) {
+                throw new IllegalArgumentException("Gallery entries mix LBP grids of " + lbpGridSize
+                                                   + " and " + texture.getGridSize());
+            }
+        }
+        int recordSize = recordSize(dimensions, lbpGridSize);
+        int lbpBins = lbpGridSize * lbpGridSize * LbpHistogram.BINS;
+
+        Path tempIndex = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        Path tempDetails = detailsFile.resolveSibling(detailsFile.getFileName() + ".tmp");
+
+        // Details first, so every record knows where its entry landed
+        long[] detailOffsets = new long[entries.size()];
+        int[] detailLengths = new int[entries.size()];
+        long detailsSize;
+        try (FileChannel channel = FileChannel.open(tempDetails, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            long position = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                byte[] json = MAPPER.writeValueAsBytes(entries.get(i));
+                // Pad to the next segment rather than split an entry across two mappings
+                if (position / SEGMENT_BYTES != (position + json.length - 1) / SEGMENT_BYTES) {
+                    int padding = (int) ((position / SEGMENT_BYTES + 1) * SEGMENT_BYTES - position);
+                    put(channel, out, new byte[padding]);
+                    position += padding;
+                }
+                put(channel, out, json);
+                detailOffsets[i] = position;
+                detailLengths[i] = json.length;
+                position += json.length;
+            }
+            drain(channel, out);
+            channel.force(true);
+            detailsSize = position;
+        }
+
+        try (FileChannel channel = FileChannel.open(tempIndex, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer out = ByteBuffer.allocate(Math.max(Math.max(HEADER_SIZE, recordSize),
+                                                        WRITE_BUFFER_SIZE / recordSize * recordSize))
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+
+            out.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(entries.size()).putInt(recordSize);
+            out.put(HexFormat.of().parseHex(sourceHash));
+            out.putInt(SETTINGS_OFFSET, settingsFingerprint);
+            out.putLong(DETAILS_SIZE_OFFSET, detailsSize);
+            out.putInt(LBP_GRID_OFFSET, lbpGridSize);
+            out.position(HEADER_SIZE);
+            drain(channel, out);
+
+            double[] values = new double[dimensions];
+            for (int i = 0; i < entries.size(); i++) {
+                if (out.remaining() < recordSize) {
+                    drain(channel, out);
+                }
+                FaceFeatureVector features = entries.get(i).getFeatures();
+                features.copyInto(values, 0);
+                for (double value : values) {
+                    out.putDouble(value);
+                }
+                ColorHistogram colors = features.getColorHistogram();
+                LbpHistogram texture = features.getLbpHistogram();
+                out.putLong(features.getPerceptualHash())
+                   .putLong(detailOffsets[i])
+                   .putInt(detailLengths[i])
+                   .putInt((colors != null ? HAS_COLOR_HISTOGRAM : 0) | (texture != null ? HAS_LBP_HISTOGRAM : 0));
+                for (int bin = 0; bin < ColorHistogram.BINS; bin++) {
+                    out.putShort(colors != null ? colors.get(bin) : 0);
+                }
+                for (int bin = 0; bin < lbpBins; bin++) {
+                    out.putFloat(texture != null ? texture.get(bin) : 0f);
+                }
+            }
+            drain(channel, out);
+            channel.force(true);
+        }
+
+        move(tempDetails, detailsFile);
+        move(tempIndex, indexFile);
+    }
+
+    private static void put(FileChannel channel, ByteBuffer out, byte[] bytes) throws IOException {
+        for (int offset = 0; offset < bytes.length; ) {
+            if (!out.hasRemaining()) {
+                drain(channel, out);
+            }
+            int length = Math.min(out.remaining(), bytes.length - offset);
+            out.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static int recordSize(int dimensions, int lbpGridSize) {
+        return dimensions * Double.BYTES + LBP_FIELD + lbpGridSize * lbpGridSize * LbpHistogram.BINS * Float.BYTES;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Grid size of the stored LBP histograms, 0 when the index was built without them
+     */
+    public int getLbpGridSize() {
+        return lbpGridSize;
+    }
+
+    /**
+     * Floats in one record's LBP histogram, i.e. the scratch size {@link #lbpChiSquare} needs
+     */
+    public int getLbpBinCount() {
+        return lbpGridSize * lbpGridSize * LbpHistogram.BINS;
+    }
+
+    /**
+     * SHA-256 of the PDF the index was built from
+     */
+    public String getSourceHash() {
+        return sourceHash;
+    }
+
+    /**
+     * Fingerprint of the feature extraction settings the records were computed with
+     */
+    public int getSettingsFingerprint() {
+        return settingsFingerprint;
+    }
+
+    private ByteBuffer segment(int record) {
+        return segments[record / recordsPerSegment];
+    }
+
+    /**
+     * Byte offset of a record within its segment
+     */
+    private int base(int record) {
+        return (record % recordsPerSegment) * recordSize;
+    }
+
+    /**
+     * Copy one record's features into a caller-owned array without allocating.
+     * Uses absolute reads only, so concurrent readers can share the mapping.
+     */
+    public void readFeatures(int record, double[] target) {
+        ByteBuffer buffer = segment(record);
+        int base = base(record);
+        for (int i = 0; i < dimensions; i++) {
+            target[i] = buffer.getDouble(base + i * Double.BYTES);
+        }
+    }
+
+    /**
+     * 64-bit perceptual hash of a record's face
+     */
+    public long readPerceptualHash(int record) {
+        return segment(record).getLong(base(record) + featureBytes + HASH_FIELD);
+    }
+
+    /**
+     * Colour histogram intersection between the probe and a record, read in place;
+     * NaN when the record was written without a histogram
+     */
+    public double colorIntersection(int record, ColorHistogram probe) {
+        ByteBuffer buffer = segment(record);
+        int base = base(record) + featureBytes;
+        if ((buffer.getInt(base + FLAGS_FIELD) & HAS_COLOR_HISTOGRAM) == 0) {
+            return Double.NaN;
+        }
+        int bins = base + COLOR_FIELD;
+        long sum = 0;
+        for (int bin = 0; bin < ColorHistogram.BINS; bin++) {
+            sum += Math.min(probe.get(bin), buffer.getShort(bins + bin * Short.BYTES));
+        }
+        return Math.min(1.0, sum / (3.0 * ColorHistogram.SCALE));
+    }
+
+    /**
+     * LBP chi-square distance between the probe and a record, reading the record's histogram into
+     * a caller-owned array of {@link #getLbpBinCount()} floats; NaN when the record has no histogram
+     */
+    public double lbpChiSquare(int record, LbpHistogram probe, float[] scratch) {
+        if (!readLbpBins(record, scratch)) {
+            return Double.NaN;
+        }
+        return probe.chiSquare(scratch);
+    }
+
+    private boolean readLbpBins(int record, float[] target) {
+        ByteBuffer buffer = segment(record);
+        int base = base(record) + featureBytes;
+        if ((buffer.getInt(base + FLAGS_FIELD) & HAS_LBP_HISTOGRAM) == 0) {
+            return false;
+        }
+        int bins = base + LBP_FIELD;
+        for (int bin = 0, count = getLbpBinCount(); bin < count; bin++) {
+            target[bin] = buffer.getFloat(bins + bin * Float.BYTES);
+        }
+        return true;
+    }
+
+    public FaceFeatureVector getFeatures(int record) {
+        double[] values = new double[dimensions];
+        readFeatures(record, values);
+        float[] texture = new float[getLbpBinCount()];
+        return FaceFeatureVector.fromArray(values, readPerceptualHash(record), readColorHistogram(record),
+                                           readLbpBins(record, texture) ? new LbpHistogram(lbpGridSize, texture) : null);
+    }
+
+    /**
+     * Colour histogram of a record, or null when it was written without one
+     */
+    public ColorHistogram readColorHistogram(int record) {
+        ByteBuffer buffer = segment(record);
+        int base = base(record) + featureBytes;
+        if ((buffer.getInt(base + FLAGS_FIELD) & HAS_COLOR_HISTOGRAM) == 0) {
+            return null;
+        }
+        short[] bins = new short[ColorHistogram.BINS];
+        for (int bin = 0; bin < bins.length; bin++) {
+            bins[bin] = buffer.getShort(base + COLOR_FIELD + bin * Short.BYTES);
+        }
+        return new ColorHistogram(bins);
+    }
+
+    /**
+     * Image path and student details of a record, parsed from the details file on each call
+     */
+    public GalleryEntry getEntry(int record) {
+        ByteBuffer buffer = segment(record);
+        int base = base(record) + featureBytes;
+        long offset = buffer.getLong(base + DETAILS_OFFSET_FIELD);
+        int length = buffer.getInt(base + DETAILS_LENGTH_FIELD);
+
+        byte[] json = new byte[length];
+        detailSegments[(int) (offset / SEGMENT_BYTES)].get((int) (offset % SEGMENT_BYTES), json);
+        try {
+            return MAPPER.readValue(json, GalleryEntry.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt student details for gallery record " + record, e);
+        }
+    }
+
+    /**
+     * Validated index header, read without mapping the file
+     */
+    public static final class Header {
+        private final int dimensions;
+        private final int count;
+        private final int recordSize;
+        private final int lbpGridSize;
+        private final String sourceHash;
+        private final int settingsFingerprint;
+        private final long detailsSize;
+
+        private Header(int dimensions, int count, int recordSize, int lbpGridSize, String sourceHash,
+                       int settingsFingerprint, long detailsSize) {
+            this.dimensions = dimensions;
+            this.count = count;
+            this.recordSize = recordSize;
+            this.lbpGridSize = lbpGridSize;
+            this.sourceHash = sourceHash;
+            this.settingsFingerprint = settingsFingerprint;
+            this.detailsSize = detailsSize;
+        }
+
+        /**
+         * SHA-256 of the PDF the index was built from
+         */
+        public String getSourceHash() {
+            return sourceHash;
+        }
+
+        /**
+         * Fingerprint of the feature extraction settings the records were computed with
+         */
+        public int getSettingsFingerprint() {
+            return settingsFingerprint;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.college.project.gallery;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import com.college.project.model.ColorHistogram;
+import com.college.project.model.FaceFeatureVector;
+
+/**
+ * LSH Index
+ * Approximate nearest neighbour lookup over a gallery index using E2LSH
+ * (p-stable random projections) on a normalized embedding of the feature vectors
+ * and their colour histograms.
+ *
+ * Each of the L tables concatenates k hashes h(v) = floor((a . v + b) / w); more
+ * tables raise recall, more hashes per table or a narrower bucket width shrink
+ * the candidate set. Candidates are meant to be re-ranked with the exact similarity.
+ */
+public final class LshIndex {
+
+    // Embedding: the terms of the basic similarity, scaled by their weight so that
+    // distance in this space tracks how much the weighted score drops. Colour is scored
+    // by histogram intersection, so each channel contributes its histogram folded into
+    // a few coarse bins; folding only ever shrinks the gap between two histograms.
+    private static final int COARSE_BINS_PER_CHANNEL = 4;
+    private static final int COARSE_BIN_SPAN = ColorHistogram.BINS_PER_CHANNEL / COARSE_BINS_PER_CHANNEL;
+    private static final int COLOR_OFFSET = 3;
+    static final int EMBEDDING_DIMENSIONS = COLOR_OFFSET + 3 * COARSE_BINS_PER_CHANNEL;
+    private static final double INTENSITY_SCALE = 0.3 / 255.0;
+    private static final double RATIO_SCALE = 0.2;
+    private static final double LOG_AREA_SCALE = 0.2;
+    // A channel moved wholly from one coarse bin to another loses its full third of the
+    // colour weight (0.1) and lies that far away: sqrt(2) * COLOR_SCALE
+    private static final double COLOR_SCALE = 0.1 / Math.sqrt(2.0);
+    private static final int[] CHANNEL_MEANS = {
+        FaceFeatureVector.MEAN_RED, FaceFeatureVector.MEAN_GREEN, FaceFeatureVector.MEAN_BLUE
+    };
+
+    private final int size;
+    private final int tables;
+    private final int hashesPerTable;
+    private final double bucketWidth;
+
+    // [table][hash][dimension] projections and [table][hash] offsets
+    private final double[][][] projections;
+    private final double[][] offsets;
+
+    // Per table: distinct bucket keys in ascending order, the start of each bucket
+    // in bucketRecords, and the records grouped by bucket
+    private final int[][] bucketKeys;
+    private final int[][] bucketStarts;
+    private final int[][] bucketRecords;
+
+    private LshIndex(int size, int tables, int hashesPerTable, double bucketWidth, long seed) {
+        this.size = size;
+        this.tables = tables;
+        this.hashesPerTable = hashesPerTable;
+        this.bucketWidth = bucketWidth;
+        this.projections = new double[tables][hashesPerTable][EMBEDDING_DIMENSIONS];
+        this.offsets = new double[tables][hashesPerTable];
+        this.bucketKeys = new int[tables][];
+        this.bucketStarts = new int[tables][];
+        this.bucketRecords = new int[tables][];
+
+        Random random = new Random(seed);
+        for (int t = 0; t < tables; t++) {
+            for (int h = 0; h < hashesPerTable; h++) {
+                for (int d = 0; d < EMBEDDING_DIMENSIONS; d++) {
+                    projections[t][h][d] = random.nextGaussian();
+                }
+                offsets[t][h] = random.nextDouble() * bucketWidth;
+            }
+        }
+    }
+
+    /**
+     * Hash every record of the gallery index into L tables
+     */
+    public static LshIndex build(GalleryIndex index, int tables, int hashesPerTable, double bucketWidth, long seed) {
+        if (tables < 1 || hashesPerTable < 1 || !(bucketWidth > 0)) {
+            throw new IllegalArgumentException("LSH needs at least one table, one hash per table and a positive bucket width");
+        }
+
+        int size = index.size();
+        LshIndex lsh = new LshIndex(size, tables, hashesPerTable, bucketWidth, seed);
+
+        double[] raw = new double[FaceFeatureVector.DIMENSIONS];
+        double[] embedding = new double[EMBEDDING_DIMENSIONS];
+        int[][] keys = new int[tables][size];
+        for (int record = 0; record < size; record++) {
+            embed(index, record, raw, embedding);
+            for (int t = 0; t < tables; t++) {
+                keys[t][record] = lsh.bucketKey(t, embedding);
+            }
+        }
+
+        for (int t = 0; t < tables; t++) {
+            lsh.groupBuckets(t, keys[t]);
+        }
+        return lsh;
+    }
+
+    /**
+     * Records sharing a bucket with the probe in at least one table, in ascending order
+     */
+    public int[] candidates(FaceFeatureVector probe) {
+        double[] embedding = new double[EMBEDDING_DIMENSIONS];
+        embed(probe.rawValues(), probe.getColorHistogram(), embedding);
+
+        BitSet seen = new BitSet(size);
+        for (int t = 0; t < tables; t++) {
+            int bucket = Arrays.binarySearch(bucketKeys[t], bucketKey(t, embedding));
+            if (bucket < 0) {
+                continue;
+            }
+            int[] records = bucketRecords[t];
+            for (int i = bucketStarts[t][bucket], end = bucketStarts[t][bucket + 1]; i < end; i++) {
+                seen.set(records[i]);
+            }
+        }
+        return seen.stream().toArray();
+    }
+
+    /**
+     * Embed one gallery record, reading its features into raw
+     */
+    static void embed(GalleryIndex index, int record, double[] raw, double[] embedding) {
+        index.readFeatures(record, raw);
+        embed(raw, index.readColorHistogram(record), embedding);
+    }
+
+    /**
+     * Map a raw feature layout and its colour histogram into the space the projections are
+     * drawn in. Without a histogram, each channel sits wholly in the coarse bin of its mean,
+     * matching the mean RGB similarity such vectors are compared with.
+     */
+    static void embed(double[] raw, ColorHistogram colors, double[] embedding) {
+        embedding[0] = raw[FaceFeatureVector.MEAN_INTENSITY] * INTENSITY_SCALE;
+        embedding[1] = raw[FaceFeatureVector.ASPECT_RATIO] * RATIO_SCALE;
+        // Size similarity is min/max of the areas, i.e. a function of the log-area difference
+        embedding[2] = Math.log(Math.max(1.0, raw[FaceFeatureVector.FACE_AREA])) * LOG_AREA_SCALE;
+
+        Arrays.fill(embedding, COLOR_OFFSET, EMBEDDING_DIMENSIONS, 0.0);
+        if (colors == null) {
+            for (int channel = 0; channel < 3; channel++) {
+                int coarse = Math.min(COARSE_BINS_PER_CHANNEL - 1,
+                        Math.max(0, (int) (raw[CHANNEL_MEANS[channel]] * COARSE_BINS_PER_CHANNEL / 256.0)));
+                embedding[COLOR_OFFSET + channel * COARSE_BINS_PER_CHANNEL + coarse] = COLOR_SCALE;
+            }
+            return;
+        }
+        for (int bin = 0; bin < ColorHistogram.BINS; bin++) {
+            embedding[COLOR_OFFSET + bin / COARSE_BIN_SPAN] += colors.get(bin) * COLOR_SCALE / ColorHistogram.SCALE;
+        }
+    }
+
+    /**
+     * Bucket key of an embedding in one table, the k hashes mixed and folded to 32 bits
+     */
+    private int bucketKey(int table, double[] embedding) {
+        long key = table;
+        for (int h = 0; h < hashesPerTable; h++) {
+            double[] projection = projections[table][h];
+            double dot = offsets[table][h];
+            for (int d = 0; d < EMBEDDING_DIMENSIONS; d++) {
+                dot += projection[d] * embedding[d];
+            }
+            // Colliding keys only add false candidates; the exact re-rank drops them
+            key = key * 0x9E3779B97F4A7C15L + (long) Math.floor(dot / bucketWidth);
+        }
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * Sort the records of one table by bucket key and compact them into CSR form. Each
+     * record is packed as (key << 32 | record), so one primitive sort orders by key and
+     * keeps records ascending within a bucket.
+     */
+    private void groupBuckets(int table, int[] keys) {
+        long[] packed = new long[size];
+        for (int record = 0; record < size; record++) {
+            packed[record] = (long) keys[record] << 32 | record;
+        }
+        Arrays.sort(packed);
+
+        int[] records = new int[size];
+        int[] distinct = new int[size];
+        int[] starts = new int[size + 1];
+        int buckets = 0;
+        for (int i = 0; i < size; i++) {
+            int key = (int) (packed[i] >> 32);
+            records[i] = (int) packed[i];
+            if (buckets == 0 || distinct[buckets - 1] != key) {
+                distinct[buckets] = key;
+                starts[buckets] = i;
+                buckets++;
+            }
+        }
+        starts[buckets] = size;
+
+        bucketKeys[table] = Arrays.copyOf(distinct, buckets);
+        bucketStarts[table] = Arrays.copyOf(starts, buckets + 1);
+        bucketRecords[table] = records;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTables() {
+        return tables;
+    }
+
+    public int getHashesPerTable() {
+        return hashesPerTable;
+    }
+
+    public double getBucketWidth() {
+        return bucketWidth;
+    }
+}
@@ -0,0 +1,186 @@
+package com.college.project.gallery;
+
+import java.util.Arrays;
+
+import com.college.project.model.FaceFeatureVector;
+
+/**
+ * Quantized Index
+ * Compact int8 copy of a gallery index for a fast first pass over every candidate.
+ *
+ * Each record's similarity embedding (the one the LSH tables hash, coarse colour
+ * histogram included) is centred on the gallery mean and stored as signed 8-bit codes
+ * with its own scale, plus the integer squared norm of the codes: 24 bytes per record
+ * against 256 for the double features and colour histogram it stands in for, so a
+ * whole-campus roster stays cache resident during a scan. Distances come from an
+ * integer dot product,
+ *
+ * <pre>
+ * |p - c|^2 ~ sp^2 |qp|^2 + sc^2 |qc|^2 - 2 sp sc (qp . qc)
+ * </pre>
+ *
+ * and are only good enough to rank candidates; the nearest ones are meant to be
+ * re-ranked with the exact similarity on the full-precision records.
+ */
+public final class QuantizedIndex {
+
+    // Codes per record; the embedding is zero-padded to a power of two
+    static final int CODE_DIMENSIONS = 16;
+    private static final int MAX_CODE = 127;
+
+    private final int size;
+    private final byte[] codes;
+    private final float[] scales;
+    private final int[] norms;
+    private final double[] center;
+
+    private QuantizedIndex(int size, byte[] codes, float[] scales, int[] norms, double[] center) {
+        this.size = size;
+        this.codes = codes;
+        this.scales = scales;
+        this.norms = norms;
+        this.center = center;
+    }
+
+    /**
+     * Quantize every record of the gallery index
+     */
+    public static QuantizedIndex build(GalleryIndex index) {
+        int size = index.size();
+        double[] raw = new double[FaceFeatureVector.DIMENSIONS];
+        double[] embedding = new double[LshIndex.EMBEDDING_DIMENSIONS];
+
+        // Centre first so a dimension's common offset (e.g. log face area) does not eat the code range
+        double[] center = new double[LshIndex.EMBEDDING_DIMENSIONS];
+        for (int record = 0; record < size; record++) {
+            LshIndex.embed(index, record, raw, embedding);
+            for (int d = 0; d < embedding.length; d++) {
+                center[d] += embedding[d];
+            }
+        }
+        for (int d = 0; d < center.length && size > 0; d++) {
+            center[d] /= size;
+        }
+
+        byte[] codes = new byte[size * CODE_DIMENSIONS];
+        float[] scales = new float[size];
+        int[] norms = new int[size];
+        QuantizedIndex quantized = new QuantizedIndex(size, codes, scales, norms, center);
+        for (int record = 0; record < size; record++) {
+            LshIndex.embed(index, record, raw, embedding);
+            scales[record] = quantized.quantize(embedding, codes, record * CODE_DIMENSIONS);
+            norms[record] = dot(codes, record * CODE_DIMENSIONS, codes, record * CODE_DIMENSIONS, CODE_DIMENSIONS);
+        }
+        return quantized;
+    }
+
+    /**
+     * Encode an embedding, centred in place, into CODE_DIMENSIONS codes at the given offset; returns its scale
+     */
+    private float quantize(double[] embedding, byte[] target, int offset) {
+        double maxAbs = 0;
+        for (int d = 0; d < embedding.length; d++) {
+            embedding[d] -= center[d];
+            maxAbs = Math.max(maxAbs, Math.abs(embedding[d]));
+        }
+        float scale = maxAbs > 0 ? (float) (maxAbs / MAX_CODE) : 1f;
+        for (int d = 0; d < CODE_DIMENSIONS; d++) {
+            target[offset + d] = d < embedding.length ? (byte) Math.round(embedding[d] / scale) : 0;
+        }
+        return scale;
+    }
+
+    /**
+     * The records (all when records is null) nearest to the probe by quantized distance,
+     * at most limit of them, in ascending record order
+     */
+    public int[] nearest(FaceFeatureVector probeFeatures, int[] records, int limit) {
+        double[] embedding = new double[LshIndex.EMBEDDING_DIMENSIONS];
+        LshIndex.embed(probeFeatures.rawValues(), probeFeatures.getColorHistogram(), embedding);
+        byte[] probe = new byte[CODE_DIMENSIONS];
+        double probeScale = quantize(embedding, probe, 0);
+        double probeNorm = probeScale * probeScale * dot(probe, 0, probe, 0, CODE_DIMENSIONS);
+
+        int count = records == null ? size : records.length;
+        int kept = Math.max(0, Math.min(limit, count));
+        // Max-heap of the nearest records so far: the farthest kept one sits at the root
+        double[] heapDistances = new double[kept];
+        int[] heapRecords = new int[kept];
+        int heapSize = 0;
+
+        for (int i = 0; i < count && kept > 0; i++) {
+            int record = records == null ? i : records[i];
+            double scale = scales[record];
+            double distance = probeNorm + scale * scale * norms[record]
+                    - 2 * probeScale * scale * dot(probe, 0, codes, record * CODE_DIMENSIONS, CODE_DIMENSIONS);
+            if (heapSize < kept) {
+                siftUp(heapDistances, heapRecords, heapSize++, distance, record);
+            } else if (distance < heapDistances[0]) {
+                siftDown(heapDistances, heapRecords, heapSize, distance, record);
+            }
+        }
+
+        Arrays.sort(heapRecords, 0, heapSize);
+        return heapSize == heapRecords.length ? heapRecords : Arrays.copyOf(heapRecords, heapSize);
+    }
+
+    private static void siftUp(double[] distances, int[] records, int slot, double distance, int record) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (distances[parent] >= distance) {
+                break;
+            }
+            distances[slot] = distances[parent];
+            records[slot] = records[parent];
+            slot = parent;
+        }
+        distances[slot] = distance;
+        records[slot] = record;
+    }
+
+    /**
+     * Replace the root with a nearer record and restore the heap
+     */
+    private static void siftDown(double[] distances, int[] records, int heapSize, double distance, int record) {
+        int slot = 0;
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && distances[child + 1] > distances[child]) {
+                child++;
+            }
+            if (distances[child] <= distance) {
+                break;
+            }
+            distances[slot] = distances[child];
+            records[slot] = records[child];
+            slot = child;
+        }
+        distances[slot] = distance;
+        records[slot] = record;
+    }
+
+    /**
+     * Integer dot product of two int8 code slices
+     */
+    public static int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Bytes held by the codes, scales and norms
+     */
+    public long sizeInBytes() {
+        return (long) codes.length + (long) scales.length * Float.BYTES + (long) norms.length * Integer.BYTES;
+    }
+}
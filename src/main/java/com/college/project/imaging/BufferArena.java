@@ -0,0 +1,173 @@
+package com.college.project.imaging;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffer Arena
+ * Thread-confined pool of scratch int[] and long[] buffers (luma planes, summed-area
+ * tables, histogram counts) reused across requests. Buffers come in power-of-two size
+ * classes so planes of nearby pixel counts share a class; a borrowed buffer is at least
+ * the requested length and its contents are undefined.
+ *
+ * A buffer must be released on the thread that borrowed it, once nothing reads it any
+ * more. Buffers that are never released are simply garbage collected.
+ */
+public final class BufferArena {
+
+    // Smallest class is 2^MIN_CLASS elements; requests above 2^MAX_CLASS bypass the pool
+    private static final int MIN_CLASS = 6;
+    private static final int MAX_CLASS = 18;
+    // Free buffers kept per class and thread; a scan holds three Laplacian rows, a pixel row and
+    // its histogram counts, which share a class with the rows of images 256 pixels wide
+    private static final int MAX_FREE_PER_CLASS = 6;
+
+    private static final ThreadLocal<Pools> POOLS = ThreadLocal.withInitial(Pools::new);
+
+    private static final LongAdder borrows = new LongAdder();
+    private static final LongAdder reuses = new LongAdder();
+    private static final LongAdder allocations = new LongAdder();
+    private static final LongAdder oversized = new LongAdder();
+    private static final LongAdder releases = new LongAdder();
+    private static final LongAdder discards = new LongAdder();
+    private static final LongAdder pooledBytes = new LongAdder();
+
+    private BufferArena() {
+    }
+
+    /**
+     * Borrow an int buffer of at least length elements
+     */
+    public static int[] ints(int length) {
+        borrows.increment();
+        int sizeClass = sizeClass(length);
+        if (sizeClass > MAX_CLASS) {
+            oversized.increment();
+            return new int[length];
+        }
+        Pools pools = POOLS.get();
+        int free = pools.freeInts[sizeClass];
+        if (free > 0) {
+            int[] buffer = pools.ints[sizeClass][--free];
+            pools.ints[sizeClass][free] = null;
+            pools.freeInts[sizeClass] = free;
+            reuses.increment();
+            pooledBytes.add(-(long) buffer.length * Integer.BYTES);
+            return buffer;
+        }
+        allocations.increment();
+        return new int[1 << sizeClass];
+    }
+
+    /**
+     * Borrow a long buffer of at least length elements
+     */
+    public static long[] longs(int length) {
+        borrows.increment();
+        int sizeClass = sizeClass(length);
+        if (sizeClass > MAX_CLASS) {
+            oversized.increment();
+            return new long[length];
+        }
+        Pools pools = POOLS.get();
+        int free = pools.freeLongs[sizeClass];
+        if (free > 0) {
+            long[] buffer = pools.longs[sizeClass][--free];
+            pools.longs[sizeClass][free] = null;
+            pools.freeLongs[sizeClass] = free;
+            reuses.increment();
+            pooledBytes.add(-(long) buffer.length * Long.BYTES);
+            return buffer;
+        }
+        allocations.increment();
+        return new long[1 << sizeClass];
+    }
+
+    /**
+     * Return a buffer borrowed from {@link #ints(int)} on this thread
+     */
+    public static void release(int[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+        releases.increment();
+        int sizeClass = pooledClass(buffer.length);
+        Pools pools = POOLS.get();
+        if (sizeClass < 0 || pools.freeInts[sizeClass] == MAX_FREE_PER_CLASS) {
+            discards.increment();
+            return;
+        }
+        pools.ints[sizeClass][pools.freeInts[sizeClass]++] = buffer;
+        pooledBytes.add((long) buffer.length * Integer.BYTES);
+    }
+
+    /**
+     * Return a buffer borrowed from {@link #longs(int)} on this thread
+     */
+    public static void release(long[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+        releases.increment();
+        int sizeClass = pooledClass(buffer.length);
+        Pools pools = POOLS.get();
+        if (sizeClass < 0 || pools.freeLongs[sizeClass] == MAX_FREE_PER_CLASS) {
+            discards.increment();
+            return;
+        }
+        pools.longs[sizeClass][pools.freeLongs[sizeClass]++] = buffer;
+        pooledBytes.add((long) buffer.length * Long.BYTES);
+    }
+
+    /**
+     * Snapshot of the arena counters across all threads
+     */
+    public static Map<String, Object> getStats() {
+        long borrowCount = borrows.sum();
+        long reuseCount = reuses.sum();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("borrows", borrowCount);
+        stats.put("reuses", reuseCount);
+        stats.put("allocations", allocations.sum());
+        stats.put("oversized", oversized.sum());
+        stats.put("releases", releases.sum());
+        stats.put("discards", discards.sum());
+        stats.put("pooledBytes", pooledBytes.sum());
+        stats.put("maxPooledLength", 1 << MAX_CLASS);
+        stats.put("reuseRate", borrowCount == 0 ? 0.0 : Math.round(reuseCount * 10000.0 / borrowCount) / 10000.0);
+        return stats;
+    }
+
+    /**
+     * Smallest size class holding length elements
+     */
+    private static int sizeClass(int length) {
+        if (length <= 1 << MIN_CLASS) {
+            return MIN_CLASS;
+        }
+        return Integer.SIZE - Integer.numberOfLeadingZeros(length - 1);
+    }
+
+    /**
+     * Size class of a released buffer, or -1 if the arena did not hand it out
+     */
+    private static int pooledClass(int length) {
+        if (Integer.bitCount(length) != 1) {
+            return -1;
+        }
+        int sizeClass = Integer.numberOfTrailingZeros(length);
+        return sizeClass >= MIN_CLASS && sizeClass <= MAX_CLASS ? sizeClass : -1;
+    }
+
+    /**
+     * Free lists of one thread, indexed by size class
+     */
+    private static final class Pools {
+        final int[][][] ints = new int[MAX_CLASS + 1][MAX_FREE_PER_CLASS][];
+        final long[][][] longs = new long[MAX_CLASS + 1][MAX_FREE_PER_CLASS][];
+        final int[] freeInts = new int[MAX_CLASS + 1];
+        final int[] freeLongs = new int[MAX_CLASS + 1];
+    }
+}
@@ -0,0 +1,53 @@
+package com.college.project.imaging;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content Hash
+ * Identifies an image by its bytes rather than its file name, so renamed
+ * copies of the same card resolve to the same key
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    /**
+     * SHA-256 of the given bytes as lowercase hex. Hashing is an order of
+     * magnitude cheaper than decoding and, unlike a checksum, safe to trust
+     * as an identity for verification results.
+     */
+    public static String of(byte[] bytes) {
+        return HexFormat.of().formatHex(newDigest().digest(bytes));
+    }
+
+    /**
+     * SHA-256 of a file, streamed so large PDFs are never held in memory
+     */
+    public static String ofFile(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.college.project.imaging;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Decoded Image Handle
+ * Holds the pixels and metadata of an image file that has been decoded once,
+ * so quality validation, face detection and feature extraction share one decode.
+ *
+ * Large files may be decoded subsampled; width and height always describe the
+ * file at full resolution, while {@link #getImage()} holds the decoded pixels.
+ * With a memory budget, the encoded bytes held in memory count against it too:
+ * a file above half the budget is decoded from disk, and the decoded raster, like
+ * any region re-read from the file, only gets what the held bytes leave of it,
+ * however many megapixels the file holds.
+ */
+public final class DecodedImage {
+
+    private final String path;
+    private final BufferedImage image;
+    private final String formatName;
+    private final long fileSize;
+    private final String contentHash;
+    private final int width;
+    private final int height;
+    private final int subsampling;
+    // Encoded bytes, kept so a face region can be re-read at higher resolution
+    private final byte[] bytes;
+    // File to re-read regions from when it was too large to keep as bytes
+    private final Path source;
+    // Largest raster any decode for this image may materialize (0 = no limit)
+    private final long maxBytes;
+    private PixelStats pixelStats;
+    private PixelStats workingScaleStats;
+    private int workingScaleSize;
+
+    private DecodedImage(String path, BufferedImage image, String formatName, long fileSize, String contentHash,
+                         int width, int height, int subsampling, byte[] bytes, Path source, long maxBytes) {
+        this.path = path;
+        this.image = image;
+        this.formatName = formatName;
+        this.fileSize = fileSize;
+        this.contentHash = contentHash;
+        this.width = width;
+        this.height = height;
+        this.subsampling = subsampling;
+        this.bytes = bytes;
+        this.source = source;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Decode an image file at full resolution. Returns null when no installed
+     * reader understands the file, mirroring {@link javax.imageio.ImageIO#read(java.io.File)}.
+     */
+    public static DecodedImage read(String path) throws IOException {
+        return read(path, 0);
+    }
+
+    /**
+     * Decode an image file, subsampled so its longer side is not much above maxDimension (0 = full resolution)
+     */
+    public static DecodedImage read(String path, int maxDimension) throws IOException {
+        return read(path, maxDimension, 0);
+    }
+
+    /**
+     * Decode an image file within a memory budget for the encoded bytes and the decoded raster
+     * together: a file larger than half of maxBytes is hashed and decoded straight from disk
+     * instead of being read into memory, and the raster is subsampled until it fits in what
+     * is left (0 = no limit)
+     */
+    public static DecodedImage read(String path, int maxDimension, long maxBytes) throws IOException {
+        Path file = Path.of(path);
+        if (!fitsInMemory(Files.size(file), maxBytes)) {
+            return stream(path, ContentHash.ofFile(file), maxDimension, maxBytes);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        return decode(path, bytes, ContentHash.of(bytes), maxDimension, maxBytes);
+    }
+
+    /**
+     * Whether a file of this size may be read into memory under the budget, leaving at least
+     * as much again for its decoded raster; larger files should be {@link #stream streamed}
+     */
+    public static boolean fitsInMemory(long fileSize, long maxBytes) {
+        return maxBytes <= 0 || fileSize <= maxBytes / 2;
+    }
+
+    /**
+     * Decode an image file that the caller has already hashed, reading it from disk as the
+     * decoder consumes it so the encoded file is never held in memory as a whole
+     */
+    public static DecodedImage stream(String path, String contentHash, int maxDimension, long maxBytes)
+            throws IOException {
+        Path file = Path.of(path);
+        long fileSize = Files.size(file);
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            return ImageDecoder.withReader(input, decoder(path, fileSize, contentHash, maxDimension, maxBytes,
+                                                          null, file));
+        }
+    }
+
+    /**
+     * Decode image bytes that have already been read and hashed by the caller
+     */
+    public static DecodedImage decode(String path, byte[] bytes, String contentHash) throws IOException {
+        return decode(path, bytes, contentHash, 0);
+    }
+
+    /**
+     * Decode image bytes that have already been read and hashed by the caller,
+     * subsampling in the reader so only the needed resolution is materialized
+     */
+    public static DecodedImage decode(String path, byte[] bytes, String contentHash, int maxDimension)
+            throws IOException {
+        return decode(path, bytes, contentHash, maxDimension, 0);
+    }
+
+    /**
+     * Decode image bytes that have already been read and hashed by the caller, subsampled
+     * for maxDimension and further, if needed, so the raster fits in what the bytes leave
+     * of maxBytes (0 = no limit)
+     */
+    public static DecodedImage decode(String path, byte[] bytes, String contentHash, int maxDimension,
+                                      long maxBytes) throws IOException {
+        return ImageDecoder.withReader(bytes, decoder(path, bytes.length, contentHash, maxDimension, maxBytes,
+                                                      bytes, null));
+    }
+
+    private static ImageDecoder.ReaderAction<DecodedImage> decoder(String path, long fileSize, String contentHash,
+                                                                   int maxDimension, long maxBytes,
+                                                                   byte[] bytes, Path source) {
+        // Encoded bytes held in memory share the budget with every raster decoded from them
+        long rasterBytes = maxBytes > 0 && bytes != null ? Math.max(1, maxBytes - bytes.length) : maxBytes;
+        return reader -> {
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            int subsampling = ImageDecoder.subsamplingFor(width, height, maxDimension, rasterBytes,
+                                                          ImageDecoder.bytesPerPixel(reader));
+
+            // Readers decode row by row and drop skipped rows, so only the subsampled raster is allocated
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            BufferedImage image = reader.read(0, param);
+            boolean keepSource = subsampling > 1;
+            return new DecodedImage(path, image, reader.getFormatName(), fileSize, contentHash, width, height,
+                                    subsampling, keepSource ? bytes : null, keepSource ? source : null, rasterBytes);
+        };
+    }
+
+    /**
+     * Wrap an image that is already in memory (e.g. a fresh camera frame)
+     */
+    public static DecodedImage of(String path, BufferedImage image) {
+        return new DecodedImage(path, image, null, -1, null, image.getWidth(), image.getHeight(), 1, null, null, 0);
+    }
+
+    /**
+     * Pixels of a region given in full-resolution coordinates, with at least minSize
+     * pixels on its shorter side where the file and the memory budget allow. A region
+     * that the subsampled decode holds too coarsely is re-read from the file on its own,
+     * at the coarsest subsampling that still satisfies minSize.
+     */
+    public BufferedImage getRegion(Rectangle region, int minSize) {
+        Rectangle bounds = region.intersection(new Rectangle(0, 0, width, height));
+        int shorterSide = Math.min(bounds.width, bounds.height);
+
+        if ((bytes != null || source != null) && shorterSide / subsampling < minSize) {
+            int minSubsampling = Math.max(1, shorterSide / minSize);
+            try {
+                BufferedImage pixels = withSource(reader -> {
+                    int regionSubsampling = Math.max(minSubsampling, ImageDecoder.subsamplingFor(
+                            bounds.width, bounds.height, 0, maxBytes, ImageDecoder.bytesPerPixel(reader)));
+                    if (regionSubsampling >= subsampling) {
+                        // The budget allows no more detail than the decoded pixels already hold
+                        return null;
+                    }
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceRegion(bounds);
+                    param.setSourceSubsampling(regionSubsampling, regionSubsampling, 0, 0);
+                    return reader.read(0, param);
+                });
+                if (pixels != null) {
+                    return pixels;
+                }
+            } catch (IOException e) {
+                // The same file decoded once already; fall back to the subsampled pixels
+            }
+        }
+
+        int x = Math.min(bounds.x / subsampling, image.getWidth() - 1);
+        int y = Math.min(bounds.y / subsampling, image.getHeight() - 1);
+        return image.getSubimage(x, y,
+                Math.max(1, Math.min(bounds.width / subsampling, image.getWidth() - x)),
+                Math.max(1, Math.min(bounds.height / subsampling, image.getHeight() - y)));
+    }
+
+    private <T> T withSource(ImageDecoder.ReaderAction<T> action) throws IOException {
+        if (bytes != null) {
+            return ImageDecoder.withReader(bytes, action);
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            return ImageDecoder.withReader(input, action);
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Width of the file at full resolution
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Height of the file at full resolution
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPixelCount() {
+        return width * height;
+    }
+
+    /**
+     * Step between decoded source pixels; 1 when decoded at full resolution
+     */
+    public int getSubsampling() {
+        return subsampling;
+    }
+
+    public String getFormatName() {
+        return formatName;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * SHA-256 of the encoded file bytes, or null for in-memory images
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Luma and channel statistics of the decoded pixels, scanned on first use and shared afterwards
+     */
+    public synchronized PixelStats getPixelStats() {
+        if (pixelStats == null) {
+            pixelStats = PixelKernels.scan(image);
+        }
+        return pixelStats;
+    }
+
+    /**
+     * Luma statistics at a fixed working scale: the file sampled on the grid a decode for
+     * workingSize would keep, then area-averaged so the longer side is workingSize pixels.
+     * The grid depends only on the file and workingSize, not on how far this image was
+     * subsampled, so the decoded pixels are stepped through when they contain that grid and
+     * the frame is re-read from the file otherwise. Without a file to re-read, or when the
+     * memory budget only allows the decode's own grid, the decoded pixels are measured instead.
+     */
+    public synchronized PixelStats getWorkingScaleStats(int workingSize) {
+        if (workingScaleStats == null || workingScaleSize != workingSize) {
+            int workingSubsampling = ImageDecoder.subsamplingFor(width, height, workingSize);
+            BufferedImage pixels = image;
+            int step = 1;
+            if (workingSubsampling % subsampling == 0) {
+                step = workingSubsampling / subsampling;
+            } else if (bytes != null || source != null) {
+                pixels = readFrame(workingSubsampling);
+            }
+            workingScaleStats = PixelKernels.scanAtWorkingSize(pixels, step, workingSize);
+            workingScaleSize = workingSize;
+        }
+        return workingScaleStats;
+    }
+
+    /**
+     * The whole frame re-read from the file at the given subsampling, or coarser if the memory
+     * budget requires; the decoded pixels when that is their own subsampling or the read fails
+     */
+    private BufferedImage readFrame(int frameSubsampling) {
+        try {
+            BufferedImage pixels = withSource(reader -> {
+                int readSubsampling = Math.max(frameSubsampling, ImageDecoder.subsamplingFor(
+                        width, height, 0, maxBytes, ImageDecoder.bytesPerPixel(reader)));
+                if (readSubsampling == subsampling) {
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(readSubsampling, readSubsampling, 0, 0);
+                return reader.read(0, param);
+            });
+            return pixels != null ? pixels : image;
+        } catch (IOException e) {
+            // The same file decoded once already; fall back to the subsampled pixels
+            return image;
+        }
+    }
+}
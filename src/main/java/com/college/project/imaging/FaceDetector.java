@@ -0,0 +1,221 @@
+package com.college.project.imaging;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.college.project.model.FaceRegion;
+
+/**
+ * Face Detector
+ * Multi-scale sliding-window detector in the style of a Haar cascade, evaluated
+ * on summed-area tables of a downsampled luma plane.
+ *
+ * Each window runs a short cascade of rectangle contrasts normalized by the
+ * window's standard deviation; most background windows are rejected by the
+ * first, cheapest stage. Scales and horizontal strips are evaluated in parallel,
+ * and overlapping hits are merged into one box per face.
+ */
+public final class FaceDetector {
+
+    // Smallest window, in working-plane pixels
+    private static final int BASE_WINDOW = 24;
+    // Windows advance by this fraction of their size
+    private static final double STEP_FRACTION = 0.1;
+    // Rows of window positions evaluated by one parallel task
+    private static final int STRIP_ROWS = 8;
+    // Hits overlapping more than this are treated as the same face
+    private static final double MERGE_OVERLAP = 0.3;
+
+    // Stage thresholds, in window standard deviations
+    private static final double MIN_WINDOW_STDDEV = 10.0;
+    private static final double EYE_BAND_THRESHOLD = 0.5;
+    private static final double NOSE_BRIDGE_THRESHOLD = 0.3;
+    private static final double EYE_BALANCE_LIMIT = 0.6;
+    private static final double MOUTH_THRESHOLD = 0.2;
+
+    private final int workingSize;
+    private final double scaleFactor;
+    private final int minNeighbors;
+
+    /**
+     * @param workingSize  longest side of the plane the detector runs on; larger images are block-averaged down
+     * @param scaleFactor  growth of the window between scales, e.g. 1.25
+     * @param minNeighbors overlapping hits a face needs before it is reported
+     */
+    public FaceDetector(int workingSize, double scaleFactor, int minNeighbors) {
+        if (workingSize < BASE_WINDOW || !(scaleFactor > 1.0) || minNeighbors < 1) {
+            throw new IllegalArgumentException("Invalid face detector settings");
+        }
+        this.workingSize = workingSize;
+        this.scaleFactor = scaleFactor;
+        this.minNeighbors = minNeighbors;
+    }
+
+    /**
+     * Detect faces, strongest first, in image pixel coordinates
+     */
+    public List<FaceRegion> detect(BufferedImage image) {
+        int factor = Math.max(1, (Math.max(image.getWidth(), image.getHeight()) + workingSize - 1) / workingSize);
+        IntegralImage integral = IntegralImage.of(image, factor);
+        int planeWidth = integral.getWidth();
+        int planeHeight = integral.getHeight();
+
+        List<int[]> tasks = new ArrayList<>();
+        for (double window = BASE_WINDOW; window <= Math.min(planeWidth, planeHeight); window *= scaleFactor) {
+            int size = (int) window;
+            int step = Math.max(1, (int) (size * STEP_FRACTION));
+            int rows = (planeHeight - size) / step + 1;
+            for (int row = 0; row < rows; row += STRIP_ROWS) {
+                tasks.add(new int[] {size, step, row, Math.min(rows, row + STRIP_ROWS)});
+            }
+        }
+
+        List<FaceRegion> hits;
+        try {
+            hits = tasks.parallelStream()
+                    .flatMap(task -> scanStrip(integral, task[0], task[1], task[2], task[3]).stream())
+                    .toList();
+        } finally {
+            // Workers only read the tables, and the stream has joined before this runs
+            integral.release();
+        }
+
+        List<FaceRegion> faces = merge(hits);
+        for (FaceRegion face : faces) {
+            face.setX(face.getX() * factor);
+            face.setY(face.getY() * factor);
+            face.setWidth(Math.min(face.getWidth() * factor, image.getWidth() - face.getX()));
+            face.setHeight(Math.min(face.getHeight() * factor, image.getHeight() - face.getY()));
+        }
+        return faces;
+    }
+
+    private static List<FaceRegion> scanStrip(IntegralImage integral, int size, int step, int fromRow, int toRow) {
+        List<FaceRegion> hits = new ArrayList<>();
+        int columns = (integral.getWidth() - size) / step + 1;
+        for (int row = fromRow; row < toRow; row++) {
+            int y = row * step;
+            for (int column = 0; column < columns; column++) {
+                int x = column * step;
+                double score = evaluate(integral, x, y, size);
+                if (score > 0) {
+                    hits.add(new FaceRegion(x, y, size, size, score));
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Run the cascade on one window; returns the summed stage responses, or 0 if any stage rejects it
+     */
+    static double evaluate(IntegralImage integral, int x, int y, int size) {
+        // Stage 0: flat regions (walls, card background) carry no face structure
+        double stddev = Math.sqrt(integral.variance(x, y, size, size));
+        if (stddev < MIN_WINDOW_STDDEV) {
+            return 0;
+        }
+
+        int eyeLeft = x + size * 15 / 100;
+        int eyeWidth = size * 70 / 100;
+        int eyeTop = y + size * 25 / 100;
+        int bandHeight = size * 20 / 100;
+        int cheekTop = y + size * 50 / 100;
+
+        // Stage 1: the eye band is darker than the cheeks below it
+        double eyes = integral.mean(eyeLeft, eyeTop, eyeWidth, bandHeight);
+        double cheeks = integral.mean(eyeLeft, cheekTop, eyeWidth, bandHeight);
+        double eyeBand = (cheeks - eyes) / stddev;
+        if (eyeBand < EYE_BAND_THRESHOLD) {
+            return 0;
+        }
+
+        // Stage 2: the bridge of the nose is brighter than the eyes either side of it
+        int third = eyeWidth / 3;
+        double leftEye = integral.mean(eyeLeft, eyeTop, third, bandHeight);
+        double bridge = integral.mean(eyeLeft + third, eyeTop, third, bandHeight);
+        double rightEye = integral.mean(eyeLeft + 2 * third, eyeTop, third, bandHeight);
+        double noseBridge = (Math.min(bridge - leftEye, bridge - rightEye)) / stddev;
+        if (noseBridge < NOSE_BRIDGE_THRESHOLD) {
+            return 0;
+        }
+
+        // Stage 3: both eyes are similarly dark
+        if (Math.abs(leftEye - rightEye) / stddev > EYE_BALANCE_LIMIT) {
+            return 0;
+        }
+
+        // Stage 4: the mouth is darker than the cheeks
+        int mouthLeft = x + size * 30 / 100;
+        int mouthTop = y + size * 72 / 100;
+        double mouth = integral.mean(mouthLeft, mouthTop, size * 40 / 100, size * 13 / 100);
+        double mouthContrast = (cheeks - mouth) / stddev;
+        if (mouthContrast < MOUTH_THRESHOLD) {
+            return 0;
+        }
+
+        return eyeBand + noseBridge + mouthContrast;
+    }
+
+    /**
+     * Group hits overlapping the strongest remaining hit, average each group into
+     * one box and drop groups with too few members. Hits centred inside an
+     * accepted face (the same face at another scale) are dropped as well.
+     */
+    private List<FaceRegion> merge(List<FaceRegion> hits) {
+        List<FaceRegion> ranked = new ArrayList<>(hits);
+        ranked.sort(Comparator.comparingDouble(FaceRegion::getConfidence).reversed());
+
+        boolean[] absorbed = new boolean[ranked.size()];
+        List<FaceRegion> faces = new ArrayList<>();
+        for (int i = 0; i < ranked.size(); i++) {
+            if (absorbed[i]) {
+                continue;
+            }
+            FaceRegion best = ranked.get(i);
+            int neighbors = 0;
+            long x = 0, y = 0, width = 0, height = 0;
+            for (int j = i; j < ranked.size(); j++) {
+                FaceRegion hit = ranked.get(j);
+                if (!absorbed[j] && best.overlap(hit) > MERGE_OVERLAP) {
+                    absorbed[j] = true;
+                    neighbors++;
+                    x += hit.getX();
+                    y += hit.getY();
+                    width += hit.getWidth();
+                    height += hit.getHeight();
+                }
+            }
+            if (neighbors < minNeighbors) {
+                continue;
+            }
+
+            FaceRegion face = new FaceRegion((int) (x / neighbors), (int) (y / neighbors),
+                    (int) (width / neighbors), (int) (height / neighbors), best.getConfidence());
+            faces.add(face);
+            for (int j = i + 1; j < ranked.size(); j++) {
+                FaceRegion hit = ranked.get(j);
+                int centerX = hit.getX() + hit.getWidth() / 2;
+                int centerY = hit.getY() + hit.getHeight() / 2;
+                if (centerX >= face.getX() && centerX < face.getX() + face.getWidth()
+                        && centerY >= face.getY() && centerY < face.getY() + face.getHeight()) {
+                    absorbed[j] = true;
+                }
+            }
+        }
+        return faces;
+    }
+
+    public int getWorkingSize() {
+        return workingSize;
+    }
+
+    /**
+     * Working size, scale factor and minimum neighbours, e.g. "256/1.25/2"
+     */
+    public String settings() {
+        return workingSize + "/" + scaleFactor + "/" + minNeighbors;
+    }
+}
@@ -0,0 +1,31 @@
+package com.college.project.imaging;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import com.college.project.model.FaceRegion;
+
+/**
+ * Face Matcher
+ * Detection backend behind FaceVerificationService. OpenCVConfig provides the
+ * OpenCV implementation when the native library loaded and a cascade is
+ * configured, and the pure-Java implementation otherwise.
+ */
+public interface FaceMatcher {
+
+    /**
+     * Engine name reported alongside the comparison method, e.g. "Java" or "OpenCV"
+     */
+    String name();
+
+    /**
+     * Engine plus every setting that changes which regions detect returns; stored gallery
+     * features are only reused while this stays the same
+     */
+    String settings();
+
+    /**
+     * Detect faces, strongest first, in image pixel coordinates
+     */
+    List<FaceRegion> detect(BufferedImage image);
+}
@@ -0,0 +1,32 @@
+package com.college.project.imaging;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Face Normalizer
+ * Resamples a cropped face region to a fixed canonical size, so feature
+ * extraction costs the same whatever the camera or ID card resolution
+ */
+public final class FaceNormalizer {
+
+    private FaceNormalizer() {
+    }
+
+    /**
+     * Resample a cropped face into a new size x size RGB image.
+     * Bilinear sampling reads a fixed number of source pixels per output pixel.
+     */
+    public static BufferedImage normalize(BufferedImage face, int size) {
+        BufferedImage canonical = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = canonical.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(face, 0, 0, size, size, null);
+        } finally {
+            graphics.dispose();
+        }
+        return canonical;
+    }
+}
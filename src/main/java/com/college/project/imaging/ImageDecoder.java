@@ -0,0 +1,162 @@
+package com.college.project.imaging;
+
+import java.awt.Dimension;
+import java.awt.image.SampleModel;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.spi.IIORegistry;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Image Decoder
+ * Runs ImageReader work against readers that are reused per thread, instead of
+ * letting ImageIO instantiate (and throw away) a new reader for every image
+ */
+public final class ImageDecoder {
+
+    // One reader per plugin per thread; readers are not thread-safe but are cheap to reset
+    private static final ThreadLocal<Map<ImageReaderSpi, ImageReader>> READERS =
+            ThreadLocal.withInitial(HashMap::new);
+
+    private ImageDecoder() {
+    }
+
+    /**
+     * Work done with a reader whose input is already set
+     */
+    @FunctionalInterface
+    public interface ReaderAction<T> {
+        T apply(ImageReader reader) throws IOException;
+    }
+
+    /**
+     * Run an action against this thread's reader for the encoded bytes.
+     * Returns null when no installed reader understands them.
+     */
+    public static <T> T withReader(byte[] bytes, ReaderAction<T> action) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            return withReader(input, action);
+        }
+    }
+
+    /**
+     * Run an action against this thread's reader for an image stream.
+     * Returns null when no installed reader understands the stream.
+     */
+    public static <T> T withReader(ImageInputStream input, ReaderAction<T> action) throws IOException {
+        if (input == null) {
+            return null;
+        }
+        ImageReaderSpi provider = findProvider(input);
+        if (provider == null) {
+            return null;
+        }
+
+        // Taken out of the pool while in use, so a nested decode on this thread gets its own instance
+        Map<ImageReaderSpi, ImageReader> readers = READERS.get();
+        ImageReader reader = readers.remove(provider);
+        if (reader == null) {
+            reader = provider.createReaderInstance();
+        }
+
+        try {
+            reader.setInput(input, true, true);
+            return action.apply(reader);
+        } finally {
+            reader.reset();
+            readers.put(provider, reader);
+        }
+    }
+
+    /**
+     * Read only the header of an image file; null if it is not a readable image
+     */
+    public static Dimension readDimensions(File file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            return withReader(input, reader -> new Dimension(reader.getWidth(0), reader.getHeight(0)));
+        }
+    }
+
+    /**
+     * Smallest subsampling step that keeps the longer side at or above maxDimension (0 = full resolution)
+     */
+    public static int subsamplingFor(int width, int height, int maxDimension) {
+        if (maxDimension <= 0) {
+            return 1;
+        }
+        return Math.max(1, Math.max(width, height) / maxDimension);
+    }
+
+    /**
+     * Smallest subsampling step that keeps the longer side at or above maxDimension and the
+     * decoded raster within maxBytes at bytesPerPixel (0 = no limit for either)
+     */
+    public static int subsamplingFor(int width, int height, int maxDimension, long maxBytes, int bytesPerPixel) {
+        int subsampling = subsamplingFor(width, height, maxDimension);
+        if (maxBytes <= 0) {
+            return subsampling;
+        }
+        // Start from the square-root estimate, then step past the rounding of partial rows and columns
+        long fullBytes = (long) width * height * bytesPerPixel;
+        subsampling = Math.max(subsampling, (int) Math.ceil(Math.sqrt((double) fullBytes / maxBytes)));
+        while (subsampling < Math.max(width, height) && decodedBytes(width, height, subsampling, bytesPerPixel) > maxBytes) {
+            subsampling++;
+        }
+        return subsampling;
+    }
+
+    /**
+     * Bytes a decode at the given subsampling materializes
+     */
+    public static long decodedBytes(int width, int height, int subsampling, int bytesPerPixel) {
+        long columns = (width + subsampling - 1) / subsampling;
+        long rows = (height + subsampling - 1) / subsampling;
+        return columns * rows * bytesPerPixel;
+    }
+
+    /**
+     * Bytes per pixel of the raster the reader decodes into, rounded up;
+     * 4 (packed ARGB) when the plugin does not say
+     */
+    public static int bytesPerPixel(ImageReader reader) throws IOException {
+        ImageTypeSpecifier type = reader.getRawImageType(0);
+        if (type == null) {
+            return 4;
+        }
+        SampleModel sampleModel = type.getSampleModel();
+        int bits = 0;
+        for (int size : sampleModel.getSampleSize()) {
+            bits += size;
+        }
+        return Math.max(1, (bits + 7) / 8);
+    }
+
+    /**
+     * First registered plugin, in the registry's preference order, that can decode the stream
+     */
+    private static ImageReaderSpi findProvider(ImageInputStream input) throws IOException {
+        Iterator<ImageReaderSpi> providers =
+                IIORegistry.getDefaultInstance().getServiceProviders(ImageReaderSpi.class, true);
+        while (providers.hasNext()) {
+            ImageReaderSpi provider = providers.next();
+            input.mark();
+            try {
+                if (provider.canDecodeInput(input)) {
+                    return provider;
+                }
+            } finally {
+                input.reset();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,114 @@
+package com.college.project.imaging;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Integral Image
+ * Summed-area tables of a luma plane and of its squares, so the sum, mean and
+ * variance of any rectangle cost four lookups regardless of its size
+ */
+public final class IntegralImage {
+
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final long[] sums;
+    private final long[] squaredSums;
+
+    private IntegralImage(int width, int height, long[] sums, long[] squaredSums) {
+        this.width = width;
+        this.height = height;
+        this.stride = width + 1;
+        this.sums = sums;
+        this.squaredSums = squaredSums;
+    }
+
+    /**
+     * Build the tables over a row-major luma plane. The tables are borrowed from the
+     * calling thread's BufferArena; call {@link #release()} on that thread when done.
+     */
+    public static IntegralImage of(int[] luma, int width, int height) {
+        int stride = width + 1;
+        long[] sums = BufferArena.longs(stride * (height + 1));
+        long[] squaredSums = BufferArena.longs(stride * (height + 1));
+
+        // Pooled tables hold stale values; only the zero top row and left column need clearing
+        Arrays.fill(sums, 0, stride, 0);
+        Arrays.fill(squaredSums, 0, stride, 0);
+        for (int y = 0; y < height; y++) {
+            long rowSum = 0;
+            long rowSquaredSum = 0;
+            int source = y * width;
+            int above = y * stride + 1;
+            int target = above + stride;
+            sums[target - 1] = 0;
+            squaredSums[target - 1] = 0;
+            for (int x = 0; x < width; x++) {
+                int value = luma[source + x];
+                rowSum += value;
+                rowSquaredSum += (long) value * value;
+                sums[target + x] = sums[above + x] + rowSum;
+                squaredSums[target + x] = squaredSums[above + x] + rowSquaredSum;
+            }
+        }
+
+        return new IntegralImage(width, height, sums, squaredSums);
+    }
+
+    /**
+     * Build the tables over the image downsampled by an integer factor
+     */
+    public static IntegralImage of(BufferedImage image, int factor) {
+        int width = image.getWidth() / factor;
+        int height = image.getHeight() / factor;
+        int[] luma = BufferArena.ints(width * height);
+        try {
+            PixelKernels.downsampledLuma(image, factor, luma);
+            return of(luma, width, height);
+        } finally {
+            BufferArena.release(luma);
+        }
+    }
+
+    /**
+     * Hand the tables back to the BufferArena; the image must not be used afterwards
+     */
+    public void release() {
+        BufferArena.release(sums);
+        BufferArena.release(squaredSums);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Sum of the rectangle [x, x + w) x [y, y + h)
+     */
+    public long sum(int x, int y, int w, int h) {
+        int top = y * stride + x;
+        int bottom = (y + h) * stride + x;
+        return sums[bottom + w] - sums[bottom] - sums[top + w] + sums[top];
+    }
+
+    public long squaredSum(int x, int y, int w, int h) {
+        int top = y * stride + x;
+        int bottom = (y + h) * stride + x;
+        return squaredSums[bottom + w] - squaredSums[bottom] - squaredSums[top + w] + squaredSums[top];
+    }
+
+    public double mean(int x, int y, int w, int h) {
+        return (double) sum(x, y, w, h) / ((long) w * h);
+    }
+
+    public double variance(int x, int y, int w, int h) {
+        double area = (double) w * h;
+        double mean = sum(x, y, w, h) / area;
+        return Math.max(0, squaredSum(x, y, w, h) / area - mean * mean);
+    }
+}
@@ -0,0 +1,34 @@
+package com.college.project.imaging;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import com.college.project.model.FaceRegion;
+
+/**
+ * Java Face Matcher
+ * Pure-Java matcher backed by the integral-image FaceDetector
+ */
+public final class JavaFaceMatcher implements FaceMatcher {
+
+    private final FaceDetector detector;
+
+    public JavaFaceMatcher(FaceDetector detector) {
+        this.detector = detector;
+    }
+
+    @Override
+    public String name() {
+        return "Java";
+    }
+
+    @Override
+    public String settings() {
+        return name() + ":" + detector.settings();
+    }
+
+    @Override
+    public List<FaceRegion> detect(BufferedImage image) {
+        return detector.detect(image);
+    }
+}
@@ -0,0 +1,41 @@
+package com.college.project.imaging;
+
+/**
+ * Kernel Backend
+ * Row and array kernels shared by pixel scans and histogram distances, implemented
+ * once with scalar loops and once with the incubating Vector API.
+ *
+ * Both implementations must return identical results. Integer kernels are exact;
+ * floating-point reductions accumulate into a fixed number of interleaved partial
+ * sums (element i goes to stripe i % stripes) that are added in stripe order, so
+ * the vector lanes and the scalar loop round identically.
+ *
+ * Only the packed-RGB luma row and the LBP histogram distances have two implementations.
+ * Histogram binning in PixelKernels is a data-dependent scatter the Vector API cannot
+ * store without conflicts, and the basic feature vectors have eight components, too
+ * few to fill a vector, so both stay scalar.
+ */
+public interface KernelBackend {
+
+    /** Partial sums used by the float reductions */
+    int FLOAT_STRIPES = 8;
+
+    String name();
+
+    /**
+     * Luma of width packed RGB pixels starting at data[index], written to luma[lumaOffset...].
+     * When sums is not null, the row's luma, red, green and blue totals are added to sums[0..3].
+     */
+    void packedRgbRow(int[] data, int index, int width, int redShift, int greenShift, int blueShift,
+                      int[] luma, int lumaOffset, long[] sums);
+
+    /**
+     * Sum over i of (a[i] - b[i])^2 / (a[i] + b[i]), skipping elements where both are 0
+     */
+    double chiSquareSum(float[] a, float[] b);
+
+    /**
+     * Sum over i of min(a[i], b[i])
+     */
+    double intersectionSum(float[] a, float[] b);
+}
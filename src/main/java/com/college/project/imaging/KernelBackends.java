@@ -0,0 +1,55 @@
+package com.college.project.imaging;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Kernel Backends
+ * Picks the kernel backend once per JVM: the Vector API backend when the
+ * jdk.incubator.vector module is present in the boot layer and the host's preferred
+ * vector width is at least 256 bits, otherwise scalar.
+ * Setting -Dapp.kernels.backend=scalar forces the scalar backend.
+ */
+public final class KernelBackends {
+
+    private static final Logger logger = LoggerFactory.getLogger(KernelBackends.class);
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_BACKEND = "com.college.project.imaging.VectorKernelBackend";
+
+    private static final KernelBackend SCALAR = new ScalarKernelBackend();
+    private static final KernelBackend CURRENT = select();
+
+    private KernelBackends() {
+    }
+
+    public static KernelBackend current() {
+        return CURRENT;
+    }
+
+    public static KernelBackend scalar() {
+        return SCALAR;
+    }
+
+    private static KernelBackend select() {
+        if ("scalar".equalsIgnoreCase(System.getProperty("app.kernels.backend"))) {
+            return SCALAR;
+        }
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            // Loaded reflectively so this class never links against the incubator module
+            return (KernelBackend) Class.forName(VECTOR_BACKEND).getDeclaredConstructor().newInstance();
+        } catch (InvocationTargetException e) {
+            // The backend rejected this host, e.g. because its vectors are too narrow
+            logger.info("Vector API kernels not used, using scalar kernels: {}", e.getCause().getMessage());
+            return SCALAR;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            logger.warn("⚠️ Vector API kernels unavailable, using scalar kernels: {}", e.getMessage());
+            return SCALAR;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.college.project.imaging;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import com.college.project.model.LbpHistogram;
+
+/**
+ * LBP Extractor
+ * Uniform 8-neighbour, radius-1 local binary patterns over a canonical face,
+ * histogrammed per cell of a gridSize x gridSize grid
+ */
+public final class LbpExtractor {
+
+    // Maps each 8-bit pattern to its uniform bin, or to the shared non-uniform bin
+    private static final byte[] UNIFORM_BIN = uniformBins();
+
+    private LbpExtractor() {
+    }
+
+    public static LbpHistogram extract(BufferedImage face, int gridSize) {
+        int width = face.getWidth();
+        int height = face.getHeight();
+        if (width < gridSize + 2 || height < gridSize + 2) {
+            throw new IllegalArgumentException("Face is too small for a " + gridSize + "x" + gridSize + " LBP grid");
+        }
+        int[] luma = BufferArena.ints(width * height);
+        try {
+            PixelKernels.downsampledLuma(face, 1, luma);
+            return extract(luma, width, height, gridSize);
+        } finally {
+            BufferArena.release(luma);
+        }
+    }
+
+    /**
+     * Histogram a row-major luma plane; border pixels have no full neighbourhood and are skipped
+     */
+    static LbpHistogram extract(int[] luma, int width, int height, int gridSize) {
+        int bins = LbpHistogram.BINS;
+        int cells = gridSize * gridSize;
+        int[] counts = BufferArena.ints(cells * bins);
+        Arrays.fill(counts, 0, cells * bins, 0);
+        int innerWidth = width - 2;
+        int innerHeight = height - 2;
+
+        // Bin offset of the cell column of every inner x, so the hot loop only indexes
+        int[] cellColumn = BufferArena.ints(width);
+        int[] columnWidths = new int[gridSize];
+        for (int x = 1; x <= innerWidth; x++) {
+            int column = (x - 1) * gridSize / innerWidth;
+            cellColumn[x] = column * bins;
+            columnWidths[column]++;
+        }
+        int[] rowHeights = new int[gridSize];
+        for (int y = 1; y <= innerHeight; y++) {
+            rowHeights[(y - 1) * gridSize / innerHeight]++;
+        }
+
+        for (int y = 1; y <= innerHeight; y++) {
+            int rowBase = (y - 1) * gridSize / innerHeight * gridSize * bins;
+            int above = (y - 1) * width;
+            int row = y * width;
+            int below = (y + 1) * width;
+            for (int x = 1; x <= innerWidth; x++) {
+                // (center - neighbour - 1) >>> 31 is 1 exactly when neighbour >= center
+                int c = luma[row + x] - 1;
+                int code = ((c - luma[above + x - 1]) >>> 31) << 7
+                         | ((c - luma[above + x]) >>> 31) << 6
+                         | ((c - luma[above + x + 1]) >>> 31) << 5
+                         | ((c - luma[row + x + 1]) >>> 31) << 4
+                         | ((c - luma[below + x + 1]) >>> 31) << 3
+                         | ((c - luma[below + x]) >>> 31) << 2
+                         | ((c - luma[below + x - 1]) >>> 31) << 1
+                         | ((c - luma[row + x - 1]) >>> 31);
+                counts[rowBase + cellColumn[x] + UNIFORM_BIN[code]]++;
+            }
+        }
+
+        float[] normalized = new float[cells * bins];
+        for (int cell = 0; cell < cells; cell++) {
+            float scale = 1f / (rowHeights[cell / gridSize] * columnWidths[cell % gridSize]);
+            for (int bin = cell * bins, end = bin + bins; bin < end; bin++) {
+                normalized[bin] = counts[bin] * scale;
+            }
+        }
+        BufferArena.release(counts);
+        BufferArena.release(cellColumn);
+        return new LbpHistogram(gridSize, normalized);
+    }
+
+    /**
+     * A pattern is uniform when it has at most two 0/1 transitions around the circle
+     */
+    private static byte[] uniformBins() {
+        byte[] table = new byte[256];
+        int next = 0;
+        for (int pattern = 0; pattern < 256; pattern++) {
+            int rotated = (pattern >>> 1) | ((pattern & 1) << 7);
+            if (Integer.bitCount(pattern ^ rotated) <= 2) {
+                table[pattern] = (byte) next++;
+            } else {
+                table[pattern] = (byte) (LbpHistogram.BINS - 1);
+            }
+        }
+        return table;
+    }
+}
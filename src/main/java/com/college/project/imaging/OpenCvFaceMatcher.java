@@ -0,0 +1,202 @@
+package com.college.project.imaging;
+
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.college.project.model.FaceRegion;
+
+/**
+ * OpenCV Face Matcher
+ * Haar cascade detection through OpenCV's Mat and CascadeClassifier.
+ *
+ * OpenCV is not a build dependency: its Java classes are bound reflectively when
+ * the matcher is created, so this class only works on hosts where the OpenCV jar
+ * is on the classpath and its native library has been loaded (see OpenCVConfig).
+ * The detector runs on the same downsampled luma plane as the Java detector.
+ */
+public final class OpenCvFaceMatcher implements FaceMatcher {
+
+    // Smallest face reported, in working-plane pixels (matches FaceDetector)
+    private static final int MIN_FACE = 24;
+
+    private final int workingSize;
+    private final double scaleFactor;
+    private final int minNeighbors;
+    private final String cascadeFile;
+
+    // Bound OpenCV API
+    private final int cv8uc1;
+    private final Constructor<?> matConstructor;
+    private final Method matPut;
+    private final Method matRelease;
+    private final Constructor<?> rectsConstructor;
+    private final Method rectsToArray;
+    private final Constructor<?> intsConstructor;
+    private final Method intsToArray;
+    private final Field rectX;
+    private final Field rectY;
+    private final Field rectWidth;
+    private final Field rectHeight;
+    private final Method equalizeHist;
+    private final Constructor<?> classifierConstructor;
+    private final Method classifierEmpty;
+    private final Method detectMultiScale;
+    private final Object minSize;
+    private final Object maxSize;
+
+    // CascadeClassifier keeps per-call scratch state, so each thread gets its own
+    private final ThreadLocal<Object> classifiers;
+
+    private OpenCvFaceMatcher(String cascadeFile, int workingSize, double scaleFactor, int minNeighbors)
+            throws ReflectiveOperationException {
+        this.cascadeFile = cascadeFile;
+        this.workingSize = workingSize;
+        this.scaleFactor = scaleFactor;
+        this.minNeighbors = minNeighbors;
+
+        Class<?> mat = Class.forName("org.opencv.core.Mat");
+        Class<?> matOfRect = Class.forName("org.opencv.core.MatOfRect");
+        Class<?> matOfInt = Class.forName("org.opencv.core.MatOfInt");
+        Class<?> rect = Class.forName("org.opencv.core.Rect");
+        Class<?> size = Class.forName("org.opencv.core.Size");
+        Class<?> imgproc = Class.forName("org.opencv.imgproc.Imgproc");
+        Class<?> classifier = Class.forName("org.opencv.objdetect.CascadeClassifier");
+
+        this.cv8uc1 = Class.forName("org.opencv.core.CvType").getField("CV_8UC1").getInt(null);
+        this.matConstructor = mat.getConstructor(int.class, int.class, int.class);
+        this.matPut = mat.getMethod("put", int.class, int.class, byte[].class);
+        this.matRelease = mat.getMethod("release");
+        this.rectsConstructor = matOfRect.getConstructor();
+        this.rectsToArray = matOfRect.getMethod("toArray");
+        this.intsConstructor = matOfInt.getConstructor();
+        this.intsToArray = matOfInt.getMethod("toArray");
+        this.rectX = rect.getField("x");
+        this.rectY = rect.getField("y");
+        this.rectWidth = rect.getField("width");
+        this.rectHeight = rect.getField("height");
+        this.equalizeHist = imgproc.getMethod("equalizeHist", mat, mat);
+        this.classifierConstructor = classifier.getConstructor(String.class);
+        this.classifierEmpty = classifier.getMethod("empty");
+        this.detectMultiScale = classifier.getMethod("detectMultiScale2", mat, matOfRect, matOfInt,
+                double.class, int.class, int.class, size, size);
+        Constructor<?> sizeConstructor = size.getConstructor(double.class, double.class);
+        this.minSize = sizeConstructor.newInstance((double) MIN_FACE, (double) MIN_FACE);
+        this.maxSize = sizeConstructor.newInstance(0.0, 0.0);
+
+        this.classifiers = ThreadLocal.withInitial(() -> {
+            try {
+                return loadClassifier();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create OpenCV cascade classifier", e);
+            }
+        });
+    }
+
+    /**
+     * Bind the OpenCV API and check that the cascade file loads
+     *
+     * @throws ReflectiveOperationException when the OpenCV classes are missing or differ
+     * @throws IllegalStateException        when the cascade cannot be loaded
+     */
+    public static OpenCvFaceMatcher create(String cascadeFile, int workingSize, double scaleFactor, int minNeighbors)
+            throws ReflectiveOperationException {
+        if (workingSize < MIN_FACE || !(scaleFactor > 1.0) || minNeighbors < 1) {
+            throw new IllegalArgumentException("Invalid face detector settings");
+        }
+        OpenCvFaceMatcher matcher = new OpenCvFaceMatcher(cascadeFile, workingSize, scaleFactor, minNeighbors);
+        matcher.classifiers.get();
+        return matcher;
+    }
+
+    @Override
+    public String name() {
+        return "OpenCV";
+    }
+
+    @Override
+    public String settings() {
+        return name() + ":" + cascadeFile + "/" + workingSize + "/" + scaleFactor + "/" + minNeighbors;
+    }
+
+    @Override
+    public List<FaceRegion> detect(BufferedImage image) {
+        int factor = Math.max(1, (Math.max(image.getWidth(), image.getHeight()) + workingSize - 1) / workingSize);
+        int width = image.getWidth() / factor;
+        int height = image.getHeight() / factor;
+        if (width < MIN_FACE || height < MIN_FACE) {
+            return List.of();
+        }
+
+        // Mat.put needs an exactly sized byte[]; only the int plane can come from the arena
+        int[] luma = BufferArena.ints(width * height);
+        PixelKernels.downsampledLuma(image, factor, luma);
+        byte[] pixels = new byte[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte) luma[i];
+        }
+        BufferArena.release(luma);
+
+        Object gray = null;
+        Object rects = null;
+        Object counts = null;
+        try {
+            gray = matConstructor.newInstance(height, width, cv8uc1);
+            matPut.invoke(gray, 0, 0, pixels);
+            equalizeHist.invoke(null, gray, gray);
+
+            rects = rectsConstructor.newInstance();
+            counts = intsConstructor.newInstance();
+            detectMultiScale.invoke(classifiers.get(), gray, rects, counts,
+                    scaleFactor, minNeighbors, 0, minSize, maxSize);
+
+            Object[] boxes = (Object[]) rectsToArray.invoke(rects);
+            int[] neighbors = (int[]) intsToArray.invoke(counts);
+            List<FaceRegion> faces = new ArrayList<>(boxes.length);
+            for (int i = 0; i < boxes.length; i++) {
+                Object box = boxes[i];
+                // The neighbour count is the only strength OpenCV reports for a cascade hit
+                double confidence = i < neighbors.length ? neighbors[i] : minNeighbors;
+                faces.add(new FaceRegion(rectX.getInt(box) * factor, rectY.getInt(box) * factor,
+                        rectWidth.getInt(box) * factor, rectHeight.getInt(box) * factor, confidence));
+            }
+            faces.sort(Comparator.comparingDouble(FaceRegion::getConfidence).reversed());
+            return faces;
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("OpenCV face detection failed: " + e.getCause(), e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("OpenCV face detection failed: " + e.getMessage(), e);
+        } finally {
+            release(gray);
+            release(rects);
+            release(counts);
+        }
+    }
+
+    private Object loadClassifier() throws ReflectiveOperationException {
+        Object classifier = classifierConstructor.newInstance(cascadeFile);
+        if ((Boolean) classifierEmpty.invoke(classifier)) {
+            throw new IllegalStateException("OpenCV cascade could not be loaded: " + cascadeFile);
+        }
+        return classifier;
+    }
+
+    /**
+     * Free a Mat's native buffer now rather than whenever it is finalized
+     */
+    private void release(Object matrix) {
+        if (matrix == null) {
+            return;
+        }
+        try {
+            matRelease.invoke(matrix);
+        } catch (ReflectiveOperationException ignored) {
+            // Native memory is still reclaimed when the Mat is collected
+        }
+    }
+}
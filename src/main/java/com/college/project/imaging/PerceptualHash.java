@@ -0,0 +1,47 @@
+package com.college.project.imaging;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Perceptual Hash
+ * 64-bit difference hash (dHash): the image's luma is area-averaged down to 9x8 cells and
+ * each bit records whether a cell is brighter than its right-hand neighbour. Averaging every
+ * pixel of a cell, rather than sampling a few, keeps the hash stable under small shifts.
+ * Similar faces give hashes a small Hamming distance apart, which costs one popcount to compare.
+ */
+public final class PerceptualHash {
+
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+
+    private PerceptualHash() {
+    }
+
+    public static long dHash(BufferedImage image) {
+        int[] cells = BufferArena.ints(HASH_WIDTH * HASH_HEIGHT);
+        try {
+            PixelKernels.areaAveragedLuma(image, HASH_WIDTH, HASH_HEIGHT, cells);
+
+            long hash = 0;
+            for (int y = 0; y < HASH_HEIGHT; y++) {
+                int row = y * HASH_WIDTH;
+                for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                    hash <<= 1;
+                    if (cells[row + x] > cells[row + x + 1]) {
+                        hash |= 1;
+                    }
+                }
+            }
+            return hash;
+        } finally {
+            BufferArena.release(cells);
+        }
+    }
+
+    /**
+     * Number of differing bits, 0 (identical) to 64
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
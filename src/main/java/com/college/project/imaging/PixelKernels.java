@@ -0,0 +1,578 @@
+package com.college.project.imaging;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+
+import com.college.project.model.ColorHistogram;
+
+/**
+ * Pixel Kernels
+ * Bulk pixel loops that read the raster's backing arrays directly instead of
+ * calling BufferedImage.getRGB per pixel, using fixed-point integer luma.
+ * Packed RGB rows go through the selected KernelBackend.
+ */
+public final class PixelKernels {
+
+    /** BT.601 luma weights in 16-bit fixed point (0.299, 0.587, 0.114), summing to 65536 */
+    public static final int LUMA_RED = 19595;
+    public static final int LUMA_GREEN = 38470;
+    public static final int LUMA_BLUE = 7471;
+
+    // Channel value >>> COLOR_SHIFT is the channel's colour histogram bin
+    private static final int COLOR_SHIFT = Integer.numberOfTrailingZeros(256 / ColorHistogram.BINS_PER_CHANNEL);
+    private static final int GREEN_BINS = ColorHistogram.BINS_PER_CHANNEL;
+    private static final int BLUE_BINS = 2 * ColorHistogram.BINS_PER_CHANNEL;
+
+    private PixelKernels() {
+    }
+
+    /**
+     * Integer luma of one 8-bit RGB pixel
+     */
+    public static int luma(int red, int green, int blue) {
+        return (LUMA_RED * red + LUMA_GREEN * green + LUMA_BLUE * blue) >>> 16;
+    }
+
+    /**
+     * Compute luma, per-channel sums, the luma histogram, the colour histogram and the
+     * Laplacian (sharpness) sums in a single pass. The Laplacian runs on a rolling
+     * window of three luma rows, so no luma plane is kept.
+     */
+    public static PixelStats scan(BufferedImage image) {
+        Raster raster = image.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        ColorModel colorModel = image.getColorModel();
+        int colorSpaceType = colorModel.getColorSpace().getType();
+
+        if (dataBuffer instanceof DataBufferByte byteBuffer
+                && sampleModel instanceof ComponentSampleModel componentModel
+                && dataBuffer.getNumBanks() == 1) {
+            if (colorSpaceType == ColorSpace.TYPE_RGB && componentModel.getNumBands() >= 3) {
+                return scanInterleavedRgb(byteBuffer.getData(), raster, componentModel);
+            }
+            if (colorSpaceType == ColorSpace.TYPE_GRAY && componentModel.getNumBands() == 1) {
+                return scanGray(byteBuffer.getData(), raster, componentModel);
+            }
+        }
+
+        if (dataBuffer instanceof DataBufferInt intBuffer
+                && sampleModel instanceof SinglePixelPackedSampleModel packedModel
+                && colorModel instanceof DirectColorModel
+                && hasEightBitRgbMasks(packedModel)) {
+            return scanPackedRgb(intBuffer.getData(), raster, packedModel);
+        }
+
+        return scanGeneric(image);
+    }
+
+    private static PixelStats scanInterleavedRgb(byte[] data, Raster raster, ComponentSampleModel model) {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int scanlineStride = model.getScanlineStride();
+        int pixelStride = model.getPixelStride();
+        int[] bandOffsets = model.getBandOffsets();
+        int redOffset = bandOffsets[0];
+        int greenOffset = bandOffsets[1];
+        int blueOffset = bandOffsets[2];
+        int origin = raster.getDataBuffer().getOffset()
+                - raster.getSampleModelTranslateY() * scanlineStride
+                - raster.getSampleModelTranslateX() * pixelStride;
+
+        long lumaSum = 0, redSum = 0, greenSum = 0, blueSum = 0;
+        int[] histogram = zeroedCounts(256);
+        int[] colors = zeroedCounts(ColorHistogram.BINS);
+        RollingLaplacian laplacian = new RollingLaplacian(width);
+
+        for (int y = 0; y < height; y++) {
+            int index = origin + y * scanlineStride;
+            int[] row = laplacian.nextRow();
+            for (int x = 0; x < width; x++, index += pixelStride) {
+                int red = data[index + redOffset] & 0xFF;
+                int green = data[index + greenOffset] & 0xFF;
+                int blue = data[index + blueOffset] & 0xFF;
+                int luma = (LUMA_RED * red + LUMA_GREEN * green + LUMA_BLUE * blue) >>> 16;
+
+                redSum += red;
+                greenSum += green;
+                blueSum += blue;
+                lumaSum += luma;
+                histogram[luma]++;
+                colors[red >>> COLOR_SHIFT]++;
+                colors[GREEN_BINS + (green >>> COLOR_SHIFT)]++;
+                colors[BLUE_BINS + (blue >>> COLOR_SHIFT)]++;
+                row[x] = luma;
+            }
+            laplacian.advance();
+        }
+
+        laplacian.release();
+        PixelStats stats = new PixelStats(width, height, lumaSum, redSum, greenSum, blueSum, histogram, colors,
+                                          laplacian.sum, laplacian.squaredSum);
+        BufferArena.release(histogram);
+        BufferArena.release(colors);
+        return stats;
+    }
+
+    private static PixelStats scanGray(byte[] data, Raster raster, ComponentSampleModel model) {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int scanlineStride = model.getScanlineStride();
+        int pixelStride = model.getPixelStride();
+        int origin = raster.getDataBuffer().getOffset() + model.getBandOffsets()[0]
+                - raster.getSampleModelTranslateY() * scanlineStride
+                - raster.getSampleModelTranslateX() * pixelStride;
+
+        long lumaSum = 0;
+        int[] histogram = zeroedCounts(256);
+        RollingLaplacian laplacian = new RollingLaplacian(width);
+
+        for (int y = 0; y < height; y++) {
+            int index = origin + y * scanlineStride;
+            int[] row = laplacian.nextRow();
+            for (int x = 0; x < width; x++, index += pixelStride) {
+                int luma = data[index] & 0xFF;
+                row[x] = luma;
+                lumaSum += luma;
+                histogram[luma]++;
+            }
+            laplacian.advance();
+        }
+
+        laplacian.release();
+        int[] colors = grayColorCounts(histogram);
+        PixelStats stats = new PixelStats(width, height, lumaSum, lumaSum, lumaSum, lumaSum, histogram,
+                                          colors, laplacian.sum, laplacian.squaredSum);
+        BufferArena.release(histogram);
+        BufferArena.release(colors);
+        return stats;
+    }
+
+    /**
+     * Gray pixels have equal channels, so every channel's histogram is the binned luma histogram
+     */
+    private static int[] grayColorCounts(int[] histogram) {
+        int[] colors = zeroedCounts(ColorHistogram.BINS);
+        for (int luma = 0; luma < 256; luma++) {
+            int bin = luma >>> COLOR_SHIFT;
+            colors[bin] += histogram[luma];
+            colors[GREEN_BINS + bin] += histogram[luma];
+            colors[BLUE_BINS + bin] += histogram[luma];
+        }
+        return colors;
+    }
+
+    /**
+     * Counting buffer borrowed from the BufferArena, cleared over its first length entries;
+     * PixelStats reduces the counts when it is built, so scans release it straight after
+     */
+    private static int[] zeroedCounts(int length) {
+        int[] counts = BufferArena.ints(length);
+        Arrays.fill(counts, 0, length, 0);
+        return counts;
+    }
+
+    private static PixelStats scanPackedRgb(int[] data, Raster raster, SinglePixelPackedSampleModel model) {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int scanlineStride = model.getScanlineStride();
+        int[] bitOffsets = model.getBitOffsets();
+        int redShift = bitOffsets[0];
+        int greenShift = bitOffsets[1];
+        int blueShift = bitOffsets[2];
+        int origin = raster.getDataBuffer().getOffset()
+                - raster.getSampleModelTranslateY() * scanlineStride
+                - raster.getSampleModelTranslateX();
+
+        KernelBackend backend = KernelBackends.current();
+        long[] sums = new long[4];
+        int[] histogram = zeroedCounts(256);
+        int[] colors = zeroedCounts(ColorHistogram.BINS);
+        RollingLaplacian laplacian = new RollingLaplacian(width);
+
+        for (int y = 0; y < height; y++) {
+            int index = origin + y * scanlineStride;
+            int[] row = laplacian.nextRow();
+            backend.packedRgbRow(data, index, width, redShift, greenShift, blueShift, row, 0, sums);
+            // Binning stays scalar, over the row the backend just pulled into cache
+            for (int x = 0; x < width; x++) {
+                int pixel = data[index + x];
+                histogram[row[x]]++;
+                colors[((pixel >>> redShift) & 0xFF) >>> COLOR_SHIFT]++;
+                colors[GREEN_BINS + (((pixel >>> greenShift) & 0xFF) >>> COLOR_SHIFT)]++;
+                colors[BLUE_BINS + (((pixel >>> blueShift) & 0xFF) >>> COLOR_SHIFT)]++;
+            }
+            laplacian.advance();
+        }
+
+        laplacian.release();
+        PixelStats stats = new PixelStats(width, height, sums[0], sums[1], sums[2], sums[3], histogram, colors,
+                                          laplacian.sum, laplacian.squaredSum);
+        BufferArena.release(histogram);
+        BufferArena.release(colors);
+        return stats;
+    }
+
+    /**
+     * Fallback for palette and unusual layouts: one bulk getRGB call per row
+     */
+    private static PixelStats scanGeneric(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = BufferArena.ints(width);
+
+        long lumaSum = 0, redSum = 0, greenSum = 0, blueSum = 0;
+        int[] histogram = zeroedCounts(256);
+        int[] colors = zeroedCounts(ColorHistogram.BINS);
+
+        RollingLaplacian laplacian = new RollingLaplacian(width);
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int[] lumaRow = laplacian.nextRow();
+            for (int x = 0; x < width; x++) {
+                int pixel = row[x];
+                int red = (pixel >>> 16) & 0xFF;
+                int green = (pixel >>> 8) & 0xFF;
+                int blue = pixel & 0xFF;
+                int luma = (LUMA_RED * red + LUMA_GREEN * green + LUMA_BLUE * blue) >>> 16;
+
+                redSum += red;
+                greenSum += green;
+                blueSum += blue;
+                lumaSum += luma;
+                histogram[luma]++;
+                colors[red >>> COLOR_SHIFT]++;
+                colors[GREEN_BINS + (green >>> COLOR_SHIFT)]++;
+                colors[BLUE_BINS + (blue >>> COLOR_SHIFT)]++;
+                lumaRow[x] = luma;
+            }
+            laplacian.advance();
+        }
+
+        BufferArena.release(row);
+        laplacian.release();
+        PixelStats stats = new PixelStats(width, height, lumaSum, redSum, greenSum, blueSum, histogram, colors,
+                                          laplacian.sum, laplacian.squaredSum);
+        BufferArena.release(histogram);
+        BufferArena.release(colors);
+        return stats;
+    }
+
+    /**
+     * Three-row luma window for the 4-neighbour Laplacian. Fill nextRow() with the
+     * next row's luma, then call advance(); once three rows are in, each advance adds
+     * the Laplacian of the middle row's inner pixels to the running sums. Rows are
+     * borrowed from the BufferArena and handed back by release().
+     */
+    private static final class RollingLaplacian {
+
+        private final int width;
+        private int[] above;
+        private int[] middle;
+        private int[] below;
+        private int rows;
+
+        long sum;
+        long squaredSum;
+
+        RollingLaplacian(int width) {
+            this.width = width;
+            this.above = BufferArena.ints(width);
+            this.middle = BufferArena.ints(width);
+            this.below = BufferArena.ints(width);
+        }
+
+        int[] nextRow() {
+            return below;
+        }
+
+        void advance() {
+            if (++rows >= 3) {
+                long rowSum = 0, rowSquares = 0;
+                for (int x = 1; x < width - 1; x++) {
+                    int value = 4 * middle[x] - above[x] - below[x] - middle[x - 1] - middle[x + 1];
+                    rowSum += value;
+                    rowSquares += value * value;
+                }
+                sum += rowSum;
+                squaredSum += rowSquares;
+            }
+            int[] recycled = above;
+            above = middle;
+            middle = below;
+            below = recycled;
+        }
+
+        void release() {
+            BufferArena.release(above);
+            BufferArena.release(middle);
+            BufferArena.release(below);
+        }
+    }
+
+    /**
+     * Block-averaged luma plane at 1/factor of the image's resolution, row-major.
+     * Trailing pixels that do not fill a whole block are dropped.
+     */
+    public static int[] downsampledLuma(BufferedImage image, int factor) {
+        int[] plane = new int[(image.getWidth() / factor) * (image.getHeight() / factor)];
+        downsampledLuma(image, factor, plane);
+        return plane;
+    }
+
+    /**
+     * Write the block-averaged luma plane into the start of a caller-owned buffer,
+     * e.g. one borrowed from the BufferArena
+     */
+    static void downsampledLuma(BufferedImage image, int factor, int[] plane) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int planeWidth = width / factor;
+        int planeHeight = height / factor;
+        if (planeWidth == 0 || planeHeight == 0) {
+            return;
+        }
+
+        LumaRowReader reader = lumaRowReader(image);
+        if (factor == 1) {
+            for (int y = 0; y < height; y++) {
+                reader.read(y, plane, y * width);
+            }
+            return;
+        }
+
+        int[] row = BufferArena.ints(width);
+        int[] blockSums = BufferArena.ints(planeWidth);
+        int blockArea = factor * factor;
+
+        for (int planeY = 0; planeY < planeHeight; planeY++) {
+            Arrays.fill(blockSums, 0, planeWidth, 0);
+            for (int y = planeY * factor, end = y + factor; y < end; y++) {
+                reader.read(y, row, 0);
+                for (int planeX = 0, x = 0; planeX < planeWidth; planeX++) {
+                    int sum = 0;
+                    for (int i = 0; i < factor; i++, x++) {
+                        sum += row[x];
+                    }
+                    blockSums[planeX] += sum;
+                }
+            }
+            int base = planeY * planeWidth;
+            for (int planeX = 0; planeX < planeWidth; planeX++) {
+                plane[base + planeX] = blockSums[planeX] / blockArea;
+            }
+        }
+
+        BufferArena.release(row);
+        BufferArena.release(blockSums);
+    }
+
+    /**
+     * Area-averaged luma on a planeWidth x planeHeight grid, row-major, for grids that do not
+     * divide the image. Cell i along an axis of n pixels covers pixels [i * n / cells, (i + 1) * n / cells),
+     * widened to one pixel when the image is smaller than the grid, so every pixel of a cell counts
+     * and none are skipped between cells.
+     */
+    static void areaAveragedLuma(BufferedImage image, int planeWidth, int planeHeight, int[] plane) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        LumaRowReader reader = lumaRowReader(image);
+        int[] row = BufferArena.ints(width);
+        long[] cellSums = BufferArena.longs(planeWidth);
+
+        for (int planeY = 0; planeY < planeHeight; planeY++) {
+            areaAveragedRow(reader, width, height, planeY, planeWidth, planeHeight, row, cellSums,
+                            plane, planeY * planeWidth);
+        }
+
+        BufferArena.release(row);
+        BufferArena.release(cellSums);
+    }
+
+    /**
+     * Luma statistics of every step-th pixel of every step-th row (the grid a decoder subsampling by
+     * step would keep), area-averaged so the longer side is workingSize pixels, or left as it is when
+     * that side is already no longer. Contrast and sharpness measured this way describe the picture
+     * at one fixed scale. The averaged rows stream through the Laplacian window, so no plane is kept;
+     * channel sums and colour counts are those of a gray image with this luma.
+     */
+    public static PixelStats scanAtWorkingSize(BufferedImage image, int step, int workingSize) {
+        int imageWidth = image.getWidth();
+        int width = (imageWidth + step - 1) / step;
+        int height = (image.getHeight() + step - 1) / step;
+        int longerSide = Math.max(width, height);
+        int planeWidth = width;
+        int planeHeight = height;
+        if (workingSize > 0 && longerSide > workingSize) {
+            planeWidth = Math.max(1, (int) ((long) width * workingSize / longerSide));
+            planeHeight = Math.max(1, (int) ((long) height * workingSize / longerSide));
+        }
+
+        LumaRowReader imageRows = lumaRowReader(image);
+        LumaRowReader reader = step == 1 ? imageRows : (y, luma, offset) -> {
+            // Compacting forwards never overwrites a sample before it is read
+            imageRows.read(y * step, luma, offset);
+            for (int x = 0, source = 0; x < width; x++, source += step) {
+                luma[offset + x] = luma[offset + source];
+            }
+        };
+        int[] row = BufferArena.ints(imageWidth);
+        long[] cellSums = BufferArena.longs(planeWidth);
+        long lumaSum = 0;
+        int[] histogram = zeroedCounts(256);
+        RollingLaplacian laplacian = new RollingLaplacian(planeWidth);
+
+        for (int planeY = 0; planeY < planeHeight; planeY++) {
+            int[] lumaRow = laplacian.nextRow();
+            areaAveragedRow(reader, width, height, planeY, planeWidth, planeHeight, row, cellSums, lumaRow, 0);
+            for (int x = 0; x < planeWidth; x++) {
+                lumaSum += lumaRow[x];
+                histogram[lumaRow[x]]++;
+            }
+            laplacian.advance();
+        }
+
+        BufferArena.release(row);
+        BufferArena.release(cellSums);
+        laplacian.release();
+        int[] colors = grayColorCounts(histogram);
+        PixelStats stats = new PixelStats(planeWidth, planeHeight, lumaSum, lumaSum, lumaSum, lumaSum, histogram,
+                                          colors, laplacian.sum, laplacian.squaredSum);
+        BufferArena.release(histogram);
+        BufferArena.release(colors);
+        return stats;
+    }
+
+    /**
+     * One row of the area-averaged luma grid over a width x height source, written to out from
+     * offset; row and cellSums are scratch of at least the row reader's width and planeWidth
+     */
+    private static void areaAveragedRow(LumaRowReader reader, int width, int height, int planeY,
+                                        int planeWidth, int planeHeight, int[] row, long[] cellSums,
+                                        int[] out, int offset) {
+        int top = Math.min(planeY * height / planeHeight, height - 1);
+        int bottom = Math.max(top + 1, (planeY + 1) * height / planeHeight);
+        Arrays.fill(cellSums, 0, planeWidth, 0L);
+        for (int y = top; y < bottom; y++) {
+            reader.read(y, row, 0);
+            for (int planeX = 0; planeX < planeWidth; planeX++) {
+                int left = Math.min(planeX * width / planeWidth, width - 1);
+                int right = Math.max(left + 1, (planeX + 1) * width / planeWidth);
+                long sum = 0;
+                for (int x = left; x < right; x++) {
+                    sum += row[x];
+                }
+                cellSums[planeX] += sum;
+            }
+        }
+        for (int planeX = 0; planeX < planeWidth; planeX++) {
+            int left = Math.min(planeX * width / planeWidth, width - 1);
+            int right = Math.max(left + 1, (planeX + 1) * width / planeWidth);
+            out[offset + planeX] = (int) (cellSums[planeX] / ((long) (right - left) * (bottom - top)));
+        }
+    }
+
+    /**
+     * Reads one row of luma values into a caller-owned array at the given offset
+     */
+    @FunctionalInterface
+    private interface LumaRowReader {
+        void read(int y, int[] luma, int offset);
+    }
+
+    private static LumaRowReader lumaRowReader(BufferedImage image) {
+        Raster raster = image.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        ColorModel colorModel = image.getColorModel();
+        int colorSpaceType = colorModel.getColorSpace().getType();
+        int width = raster.getWidth();
+
+        if (dataBuffer instanceof DataBufferByte byteBuffer
+                && sampleModel instanceof ComponentSampleModel model
+                && dataBuffer.getNumBanks() == 1) {
+            byte[] data = byteBuffer.getData();
+            int scanlineStride = model.getScanlineStride();
+            int pixelStride = model.getPixelStride();
+            int[] bandOffsets = model.getBandOffsets();
+            int origin = dataBuffer.getOffset()
+                    - raster.getSampleModelTranslateY() * scanlineStride
+                    - raster.getSampleModelTranslateX() * pixelStride;
+
+            if (colorSpaceType == ColorSpace.TYPE_RGB && model.getNumBands() >= 3) {
+                int redOffset = bandOffsets[0];
+                int greenOffset = bandOffsets[1];
+                int blueOffset = bandOffsets[2];
+                return (y, luma, offset) -> {
+                    int index = origin + y * scanlineStride;
+                    for (int x = 0; x < width; x++, index += pixelStride) {
+                        luma[offset + x] = (LUMA_RED * (data[index + redOffset] & 0xFF)
+                                + LUMA_GREEN * (data[index + greenOffset] & 0xFF)
+                                + LUMA_BLUE * (data[index + blueOffset] & 0xFF)) >>> 16;
+                    }
+                };
+            }
+            if (colorSpaceType == ColorSpace.TYPE_GRAY && model.getNumBands() == 1) {
+                int grayOrigin = origin + bandOffsets[0];
+                return (y, luma, offset) -> {
+                    int index = grayOrigin + y * scanlineStride;
+                    for (int x = 0; x < width; x++, index += pixelStride) {
+                        luma[offset + x] = data[index] & 0xFF;
+                    }
+                };
+            }
+        }
+
+        if (dataBuffer instanceof DataBufferInt intBuffer
+                && sampleModel instanceof SinglePixelPackedSampleModel model
+                && colorModel instanceof DirectColorModel
+                && hasEightBitRgbMasks(model)) {
+            int[] data = intBuffer.getData();
+            int scanlineStride = model.getScanlineStride();
+            int[] bitOffsets = model.getBitOffsets();
+            int redShift = bitOffsets[0];
+            int greenShift = bitOffsets[1];
+            int blueShift = bitOffsets[2];
+            int origin = dataBuffer.getOffset()
+                    - raster.getSampleModelTranslateY() * scanlineStride
+                    - raster.getSampleModelTranslateX();
+            KernelBackend backend = KernelBackends.current();
+            return (y, luma, offset) -> backend.packedRgbRow(data, origin + y * scanlineStride, width,
+                    redShift, greenShift, blueShift, luma, offset, null);
+        }
+
+        int[] rgb = new int[width];
+        return (y, luma, offset) -> {
+            image.getRGB(0, y, width, 1, rgb, 0, width);
+            for (int x = 0; x < width; x++) {
+                int pixel = rgb[x];
+                luma[offset + x] = luma((pixel >>> 16) & 0xFF, (pixel >>> 8) & 0xFF, pixel & 0xFF);
+            }
+        };
+    }
+
+    private static boolean hasEightBitRgbMasks(SinglePixelPackedSampleModel model) {
+        int[] masks = model.getBitMasks();
+        int[] offsets = model.getBitOffsets();
+        if (masks.length < 3) {
+            return false;
+        }
+        for (int band = 0; band < 3; band++) {
+            if ((masks[band] >>> offsets[band]) != 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,158 @@
+package com.college.project.imaging;
+
+import com.college.project.model.ColorHistogram;
+
+/**
+ * Pixel Statistics
+ * Luma and per-channel sums, a 256-bin luma histogram, per-channel colour histogram
+ * counts and Laplacian sums gathered in one pass. Brightness, contrast, exposure
+ * clipping and sharpness are all derived from these without touching pixels again.
+ * The histograms are reduced to the figures those need as soon as the stats are
+ * built, so a scan can hand its counting buffers back to the BufferArena.
+ */
+public final class PixelStats {
+
+    // Luma at or below / at or above these counts as clipped shadow / highlight
+    private static final int SHADOW_CLIP = 4;
+    private static final int HIGHLIGHT_CLIP = 251;
+
+    private final int width;
+    private final int height;
+    private final long lumaSum;
+    private final long redSum;
+    private final long greenSum;
+    private final long blueSum;
+    private final long lumaSquaredSum;
+    private final int shadowClipped;
+    private final int highlightClipped;
+    private final ColorHistogram colorHistogram;
+    private final long laplacianSum;
+    private final long laplacianSquaredSum;
+
+    /**
+     * lumaHistogram and colorCounts are read here and not kept; both may be longer than
+     * 256 and ColorHistogram.BINS entries, e.g. buffers borrowed from the BufferArena
+     */
+    PixelStats(int width, int height, long lumaSum, long redSum, long greenSum, long blueSum,
+               int[] lumaHistogram, int[] colorCounts, long laplacianSum, long laplacianSquaredSum) {
+        this.width = width;
+        this.height = height;
+        this.lumaSum = lumaSum;
+        this.redSum = redSum;
+        this.greenSum = greenSum;
+        this.blueSum = blueSum;
+        this.colorHistogram = ColorHistogram.fromCounts(colorCounts);
+        this.laplacianSum = laplacianSum;
+        this.laplacianSquaredSum = laplacianSquaredSum;
+
+        long squares = 0;
+        int shadows = 0, highlights = 0;
+        for (int luma = 0; luma < 256; luma++) {
+            squares += (long) lumaHistogram[luma] * luma * luma;
+            if (luma <= SHADOW_CLIP) {
+                shadows += lumaHistogram[luma];
+            } else if (luma >= HIGHLIGHT_CLIP) {
+                highlights += lumaHistogram[luma];
+            }
+        }
+        this.lumaSquaredSum = squares;
+        this.shadowClipped = shadows;
+        this.highlightClipped = highlights;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPixelCount() {
+        return width * height;
+    }
+
+    public long getLumaSum() {
+        return lumaSum;
+    }
+
+    public long getRedSum() {
+        return redSum;
+    }
+
+    public long getGreenSum() {
+        return greenSum;
+    }
+
+    public long getBlueSum() {
+        return blueSum;
+    }
+
+    public ColorHistogram getColorHistogram() {
+        return colorHistogram;
+    }
+
+    public double getMeanLuma() {
+        return mean(lumaSum);
+    }
+
+    public double getMeanRed() {
+        return mean(redSum);
+    }
+
+    public double getMeanGreen() {
+        return mean(greenSum);
+    }
+
+    public double getMeanBlue() {
+        return mean(blueSum);
+    }
+
+    /**
+     * Variance of luma, i.e. global contrast
+     */
+    public double getLumaVariance() {
+        int pixelCount = getPixelCount();
+        if (pixelCount == 0) {
+            return 0.0;
+        }
+        double mean = getMeanLuma();
+        return Math.max(0.0, (double) lumaSquaredSum / pixelCount - mean * mean);
+    }
+
+    /**
+     * Variance of the 4-neighbour Laplacian over inner pixels; low values mean a blurry image
+     */
+    public double getLaplacianVariance() {
+        long count = (long) Math.max(0, width - 2) * Math.max(0, height - 2);
+        if (count == 0) {
+            return 0.0;
+        }
+        double mean = (double) laplacianSum / count;
+        return Math.max(0.0, (double) laplacianSquaredSum / count - mean * mean);
+    }
+
+    /**
+     * Fraction of pixels crushed to black
+     */
+    public double getShadowClipping() {
+        return fraction(shadowClipped);
+    }
+
+    /**
+     * Fraction of pixels blown out to white
+     */
+    public double getHighlightClipping() {
+        return fraction(highlightClipped);
+    }
+
+    private double fraction(int pixels) {
+        int pixelCount = getPixelCount();
+        return pixelCount == 0 ? 0.0 : (double) pixels / pixelCount;
+    }
+
+    private double mean(long sum) {
+        int pixelCount = getPixelCount();
+        return pixelCount == 0 ? 0.0 : (double) sum / pixelCount;
+    }
+}
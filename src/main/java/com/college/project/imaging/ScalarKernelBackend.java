@@ -0,0 +1,110 @@
+package com.college.project.imaging;
+
+/**
+ * Scalar Kernel Backend
+ * Plain Java loops; the reference the vector backend has to match
+ */
+public final class ScalarKernelBackend implements KernelBackend {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public void packedRgbRow(int[] data, int index, int width, int redShift, int greenShift, int blueShift,
+                             int[] luma, int lumaOffset, long[] sums) {
+        long lumaSum = 0, redSum = 0, greenSum = 0, blueSum = 0;
+        for (int x = 0; x < width; x++) {
+            int pixel = data[index + x];
+            int red = (pixel >>> redShift) & 0xFF;
+            int green = (pixel >>> greenShift) & 0xFF;
+            int blue = (pixel >>> blueShift) & 0xFF;
+            int value = (PixelKernels.LUMA_RED * red + PixelKernels.LUMA_GREEN * green
+                    + PixelKernels.LUMA_BLUE * blue) >>> 16;
+            luma[lumaOffset + x] = value;
+
+            lumaSum += value;
+            redSum += red;
+            greenSum += green;
+            blueSum += blue;
+        }
+        if (sums != null) {
+            sums[0] += lumaSum;
+            sums[1] += redSum;
+            sums[2] += greenSum;
+            sums[3] += blueSum;
+        }
+    }
+
+    @Override
+    public double chiSquareSum(float[] a, float[] b) {
+        // One local per stripe, so the per-candidate path never allocates
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+        for (int i = 0; i < a.length; i += FLOAT_STRIPES) {
+            s0 += chiSquareTerm(a, b, i);
+            s1 += chiSquareTerm(a, b, i + 1);
+            s2 += chiSquareTerm(a, b, i + 2);
+            s3 += chiSquareTerm(a, b, i + 3);
+            s4 += chiSquareTerm(a, b, i + 4);
+            s5 += chiSquareTerm(a, b, i + 5);
+            s6 += chiSquareTerm(a, b, i + 6);
+            s7 += chiSquareTerm(a, b, i + 7);
+        }
+        return sum(s0, s1, s2, s3, s4, s5, s6, s7);
+    }
+
+    @Override
+    public double intersectionSum(float[] a, float[] b) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+        for (int i = 0; i < a.length; i += FLOAT_STRIPES) {
+            s0 += intersectionTerm(a, b, i);
+            s1 += intersectionTerm(a, b, i + 1);
+            s2 += intersectionTerm(a, b, i + 2);
+            s3 += intersectionTerm(a, b, i + 3);
+            s4 += intersectionTerm(a, b, i + 4);
+            s5 += intersectionTerm(a, b, i + 5);
+            s6 += intersectionTerm(a, b, i + 6);
+            s7 += intersectionTerm(a, b, i + 7);
+        }
+        return sum(s0, s1, s2, s3, s4, s5, s6, s7);
+    }
+
+    /**
+     * (a[i] - b[i])^2 / (a[i] + b[i]); 0 where both are 0 or past the end, which leaves a
+     * non-negative stripe unchanged
+     */
+    private static float chiSquareTerm(float[] a, float[] b, int i) {
+        if (i >= a.length) {
+            return 0f;
+        }
+        float total = a[i] + b[i];
+        if (total > 0) {
+            float diff = a[i] - b[i];
+            return diff * diff / total;
+        }
+        return 0f;
+    }
+
+    /**
+     * min(a[i], b[i]), or 0 past the end
+     */
+    private static float intersectionTerm(float[] a, float[] b, int i) {
+        return i < a.length ? Math.min(a[i], b[i]) : 0f;
+    }
+
+    /**
+     * Stripes added in order, in double precision
+     */
+    static double sum(float s0, float s1, float s2, float s3, float s4, float s5, float s6, float s7) {
+        double total = s0;
+        total += s1;
+        total += s2;
+        total += s3;
+        total += s4;
+        total += s5;
+        total += s6;
+        total += s7;
+        return total;
+    }
+}
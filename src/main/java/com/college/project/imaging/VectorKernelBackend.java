@@ -0,0 +1,135 @@
+package com.college.project.imaging;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector Kernel Backend
+ * SIMD kernels on the incubating jdk.incubator.vector module. Only loaded through
+ * KernelBackends, and only when the JVM was started with --add-modules jdk.incubator.vector.
+ *
+ * Float reductions use a 256-bit species whose lane count equals FLOAT_STRIPES, so each
+ * lane is exactly one of the scalar backend's partial sums. Hosts whose preferred vector
+ * width is narrower would not intrinsify that species, so construction fails there and
+ * KernelBackends falls back to the scalar kernels.
+ */
+final class VectorKernelBackend implements KernelBackend {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_256;
+
+    VectorKernelBackend() {
+        if (INTS.vectorBitSize() < FLOATS.vectorBitSize()) {
+            throw new IllegalStateException("preferred vector width is " + INTS.vectorBitSize()
+                    + " bits, below the " + FLOATS.vectorBitSize() + "-bit reduction kernels");
+        }
+        if (FLOATS.length() != FLOAT_STRIPES) {
+            throw new IllegalStateException("Vector species do not match the reduction stripes");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + INTS.vectorBitSize() + "bit";
+    }
+
+    @Override
+    public void packedRgbRow(int[] data, int index, int width, int redShift, int greenShift, int blueShift,
+                             int[] luma, int lumaOffset, long[] sums) {
+        IntVector lumaAcc = IntVector.zero(INTS);
+        IntVector redAcc = IntVector.zero(INTS);
+        IntVector greenAcc = IntVector.zero(INTS);
+        IntVector blueAcc = IntVector.zero(INTS);
+
+        int x = 0;
+        for (int bound = INTS.loopBound(width); x < bound; x += INTS.length()) {
+            IntVector pixel = IntVector.fromArray(INTS, data, index + x);
+            IntVector red = pixel.lanewise(VectorOperators.LSHR, redShift).and(0xFF);
+            IntVector green = pixel.lanewise(VectorOperators.LSHR, greenShift).and(0xFF);
+            IntVector blue = pixel.lanewise(VectorOperators.LSHR, blueShift).and(0xFF);
+            IntVector value = red.mul(PixelKernels.LUMA_RED)
+                    .add(green.mul(PixelKernels.LUMA_GREEN))
+                    .add(blue.mul(PixelKernels.LUMA_BLUE))
+                    .lanewise(VectorOperators.LSHR, 16);
+            value.intoArray(luma, lumaOffset + x);
+
+            // At most width / lanes values of 255 per lane, so int lanes cannot overflow
+            lumaAcc = lumaAcc.add(value);
+            redAcc = redAcc.add(red);
+            greenAcc = greenAcc.add(green);
+            blueAcc = blueAcc.add(blue);
+        }
+
+        long lumaSum = lumaAcc.reduceLanes(VectorOperators.ADD);
+        long redSum = redAcc.reduceLanes(VectorOperators.ADD);
+        long greenSum = greenAcc.reduceLanes(VectorOperators.ADD);
+        long blueSum = blueAcc.reduceLanes(VectorOperators.ADD);
+        for (; x < width; x++) {
+            int pixel = data[index + x];
+            int red = (pixel >>> redShift) & 0xFF;
+            int green = (pixel >>> greenShift) & 0xFF;
+            int blue = (pixel >>> blueShift) & 0xFF;
+            int value = PixelKernels.luma(red, green, blue);
+            luma[lumaOffset + x] = value;
+
+            lumaSum += value;
+            redSum += red;
+            greenSum += green;
+            blueSum += blue;
+        }
+        if (sums != null) {
+            sums[0] += lumaSum;
+            sums[1] += redSum;
+            sums[2] += greenSum;
+            sums[3] += blueSum;
+        }
+    }
+
+    @Override
+    public double chiSquareSum(float[] a, float[] b) {
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int i = 0;
+        for (int bound = FLOATS.loopBound(a.length); i < bound; i += FLOAT_STRIPES) {
+            acc = acc.add(chiSquareTerms(FloatVector.fromArray(FLOATS, a, i), FloatVector.fromArray(FLOATS, b, i)));
+        }
+        if (i < a.length) {
+            // The tail is loaded masked; its missing lanes are 0 + 0 and add nothing
+            VectorMask<Float> inRange = FLOATS.indexInRange(i, a.length);
+            acc = acc.add(chiSquareTerms(FloatVector.fromArray(FLOATS, a, i, inRange),
+                                         FloatVector.fromArray(FLOATS, b, i, inRange)));
+        }
+        return sum(acc);
+    }
+
+    private static FloatVector chiSquareTerms(FloatVector va, FloatVector vb) {
+        FloatVector total = va.add(vb);
+        FloatVector diff = va.sub(vb);
+        VectorMask<Float> occupied = total.compare(VectorOperators.GT, 0f);
+        return FloatVector.zero(FLOATS).blend(diff.mul(diff).div(total), occupied);
+    }
+
+    @Override
+    public double intersectionSum(float[] a, float[] b) {
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int i = 0;
+        for (int bound = FLOATS.loopBound(a.length); i < bound; i += FLOAT_STRIPES) {
+            acc = acc.add(FloatVector.fromArray(FLOATS, a, i).min(FloatVector.fromArray(FLOATS, b, i)));
+        }
+        if (i < a.length) {
+            VectorMask<Float> inRange = FLOATS.indexInRange(i, a.length);
+            acc = acc.add(FloatVector.fromArray(FLOATS, a, i, inRange).min(FloatVector.fromArray(FLOATS, b, i, inRange)));
+        }
+        return sum(acc);
+    }
+
+    /**
+     * Lanes added in stripe order, matching the scalar backend's rounding
+     */
+    private static double sum(FloatVector stripes) {
+        return ScalarKernelBackend.sum(stripes.lane(0), stripes.lane(1), stripes.lane(2), stripes.lane(3),
+                stripes.lane(4), stripes.lane(5), stripes.lane(6), stripes.lane(7));
+    }
+}
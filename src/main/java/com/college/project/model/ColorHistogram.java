@@ -0,0 +1,79 @@
+package com.college.project.model;
+
+import java.util.Arrays;
+
+/**
+ * Color Histogram
+ * Red, green and blue histograms of a face, BINS_PER_CHANNEL bins each, stored back
+ * to back as 16-bit fixed-point fractions so that each channel sums to about SCALE
+ */
+public final class ColorHistogram {
+
+    public static final int BINS_PER_CHANNEL = 32;
+    public static final int BINS = 3 * BINS_PER_CHANNEL;
+
+    /** Fixed-point value of a bin holding every pixel of its channel */
+    public static final int SCALE = Short.MAX_VALUE;
+
+    private final short[] bins;
+
+    public ColorHistogram(short[] bins) {
+        if (bins.length != BINS) {
+            throw new IllegalArgumentException("Expected " + BINS + " bins but got " + bins.length);
+        }
+        this.bins = bins;
+    }
+
+    /**
+     * Normalize raw per-channel pixel counts (red, green then blue bins); only the first
+     * BINS entries are read, so counts may be a longer pooled buffer
+     */
+    public static ColorHistogram fromCounts(int[] counts) {
+        if (counts.length < BINS) {
+            throw new IllegalArgumentException("Expected at least " + BINS + " counts but got " + counts.length);
+        }
+        long pixels = 0;
+        for (int bin = 0; bin < BINS_PER_CHANNEL; bin++) {
+            pixels += counts[bin];
+        }
+        short[] bins = new short[BINS];
+        if (pixels > 0) {
+            for (int bin = 0; bin < BINS; bin++) {
+                bins[bin] = (short) ((counts[bin] * (long) SCALE + pixels / 2) / pixels);
+            }
+        }
+        return new ColorHistogram(bins);
+    }
+
+    /**
+     * Histogram intersection averaged over the three channels: 1 for identical colour distributions
+     */
+    public double intersection(ColorHistogram other) {
+        return intersection(bins, other.bins);
+    }
+
+    public static double intersection(short[] a, short[] b) {
+        long sum = 0;
+        for (int i = 0; i < BINS; i++) {
+            sum += Math.min(a[i], b[i]);
+        }
+        return Math.min(1.0, sum / (3.0 * SCALE));
+    }
+
+    public short get(int bin) {
+        return bins[bin];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof ColorHistogram other && Arrays.equals(bins, other.bins);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bins);
+    }
+}
@@ -0,0 +1,56 @@
+package com.college.project.model;
+
+/**
+ * Comparison Method
+ * Face comparison engines selectable per request or through app.face.comparison.method
+ */
+public enum ComparisonMethod {
+
+    BASIC("basic", "Basic feature comparison"),
+    LBP_HISTOGRAM("lbp", "LBP histogram comparison"),
+    // Cheap geometry and colour stages first, LBP only for pairs they cannot decide
+    CASCADE("cascade", "Cascaded feature comparison");
+
+    private final String key;
+    private final String label;
+
+    ComparisonMethod(String key, String label) {
+        this.key = key;
+        this.label = label;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Human readable name; results report it followed by the face matcher's engine
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Whether the method compares LBP texture histograms, so faces must be featurized with them
+     */
+    public boolean usesTexture() {
+        return this != BASIC;
+    }
+
+    /**
+     * Resolve a method from its key, enum name or label (case-insensitive)
+     */
+    public static ComparisonMethod fromValue(String value) {
+        if (value != null) {
+            String trimmed = value.trim();
+            for (ComparisonMethod method : values()) {
+                if (method.key.equalsIgnoreCase(trimmed)
+                        || method.name().equalsIgnoreCase(trimmed)
+                        || method.label.equalsIgnoreCase(trimmed)) {
+                    return method;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown comparison method: " + value);
+    }
+}
@@ -0,0 +1,233 @@
+package com.college.project.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Face Feature Vector
+ * Primitive, fixed-layout feature vector used for face comparison and gallery search,
+ * plus the 64-bit perceptual hash of the face used to prefilter gallery candidates,
+ * its colour histogram and, when extracted from an image, its LBP texture histogram
+ */
+public final class FaceFeatureVector {
+
+    // Fixed layout of the backing array
+    public static final int MEAN_INTENSITY = 0;
+    public static final int MEAN_RED = 1;
+    public static final int MEAN_GREEN = 2;
+    public static final int MEAN_BLUE = 3;
+    public static final int ASPECT_RATIO = 4;
+    public static final int FACE_AREA = 5;
+    public static final int WIDTH = 6;
+    public static final int HEIGHT = 7;
+    public static final int DIMENSIONS = 8;
+
+    private final double[] values;
+    private final long perceptualHash;
+    private final LbpHistogram lbpHistogram;
+    private final ColorHistogram colorHistogram;
+
+    private FaceFeatureVector(double[] values, long perceptualHash, LbpHistogram lbpHistogram,
+                              ColorHistogram colorHistogram) {
+        this.values = values;
+        this.perceptualHash = perceptualHash;
+        this.lbpHistogram = lbpHistogram;
+        this.colorHistogram = colorHistogram;
+    }
+
+    public static FaceFeatureVector of(double meanIntensity, double meanRed, double meanGreen, double meanBlue,
+                                       int width, int height) {
+        return of(meanIntensity, meanRed, meanGreen, meanBlue, width, height, 0L);
+    }
+
+    public static FaceFeatureVector of(double meanIntensity, double meanRed, double meanGreen, double meanBlue,
+                                       int width, int height, long perceptualHash) {
+        return of(meanIntensity, meanRed, meanGreen, meanBlue, width, height, perceptualHash, null, null);
+    }
+
+    public static FaceFeatureVector of(double meanIntensity, double meanRed, double meanGreen, double meanBlue,
+                                       int width, int height, long perceptualHash, LbpHistogram lbpHistogram,
+                                       ColorHistogram colorHistogram) {
+        double[] values = new double[DIMENSIONS];
+        values[MEAN_INTENSITY] = meanIntensity;
+        values[MEAN_RED] = meanRed;
+        values[MEAN_GREEN] = meanGreen;
+        values[MEAN_BLUE] = meanBlue;
+        values[ASPECT_RATIO] = (double) width / height;
+        values[FACE_AREA] = (double) width * height;
+        values[WIDTH] = width;
+        values[HEIGHT] = height;
+        return new FaceFeatureVector(values, perceptualHash, lbpHistogram, colorHistogram);
+    }
+
+    /**
+     * Rebuild a vector from its raw layout (e.g. read back from a gallery index)
+     */
+    public static FaceFeatureVector fromArray(double[] values) {
+        return fromArray(values, 0L);
+    }
+
+    public static FaceFeatureVector fromArray(double[] values, long perceptualHash) {
+        return fromArray(values, perceptualHash, null);
+    }
+
+    public static FaceFeatureVector fromArray(double[] values, long perceptualHash, ColorHistogram colorHistogram) {
+        return fromArray(values, perceptualHash, colorHistogram, null);
+    }
+
+    public static FaceFeatureVector fromArray(double[] values, long perceptualHash, ColorHistogram colorHistogram,
+                                              LbpHistogram lbpHistogram) {
+        if (values.length != DIMENSIONS) {
+            throw new IllegalArgumentException("Expected " + DIMENSIONS + " values but got " + values.length);
+        }
+        return new FaceFeatureVector(values.clone(), perceptualHash, lbpHistogram, colorHistogram);
+    }
+
+    public double get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Copy the raw layout into a caller-owned array
+     */
+    public void copyInto(double[] target, int offset) {
+        System.arraycopy(values, 0, target, offset, DIMENSIONS);
+    }
+
+    public double[] toArray() {
+        return values.clone();
+    }
+
+    public double getMeanIntensity() {
+        return values[MEAN_INTENSITY];
+    }
+
+    public double getMeanRed() {
+        return values[MEAN_RED];
+    }
+
+    public double getMeanGreen() {
+        return values[MEAN_GREEN];
+    }
+
+    public double getMeanBlue() {
+        return values[MEAN_BLUE];
+    }
+
+    public double getAspectRatio() {
+        return values[ASPECT_RATIO];
+    }
+
+    public double getFaceArea() {
+        return values[FACE_AREA];
+    }
+
+    public int getWidth() {
+        return (int) values[WIDTH];
+    }
+
+    public int getHeight() {
+        return (int) values[HEIGHT];
+    }
+
+    /**
+     * 64-bit dHash of the canonical face, 0 if none was computed
+     */
+    public long getPerceptualHash() {
+        return perceptualHash;
+    }
+
+    /**
+     * LBP texture histogram of the canonical face; null when the face was featurized for a
+     * method that does not compare texture, or for vectors rebuilt without one
+     */
+    public LbpHistogram getLbpHistogram() {
+        return lbpHistogram;
+    }
+
+    /**
+     * Per-channel colour histogram of the canonical face, null if none was computed
+     */
+    public ColorHistogram getColorHistogram() {
+        return colorHistogram;
+    }
+
+    // Component similarities, each in [0, 1]
+
+    public double intensitySimilarity(FaceFeatureVector other) {
+        return intensitySimilarity(values, other.values);
+    }
+
+    public double ratioSimilarity(FaceFeatureVector other) {
+        return ratioSimilarity(values, other.values);
+    }
+
+    public double sizeSimilarity(FaceFeatureVector other) {
+        return sizeSimilarity(values, other.values);
+    }
+
+    /**
+     * Colour histogram intersection when both vectors carry histograms, otherwise mean RGB similarity
+     */
+    public double colorSimilarity(FaceFeatureVector other) {
+        if (colorHistogram != null && other.colorHistogram != null) {
+            return colorHistogram.intersection(other.colorHistogram);
+        }
+        return colorSimilarity(values, other.values);
+    }
+
+    /**
+     * Raw values backing this vector; callers must treat the array as read-only
+     */
+    public double[] rawValues() {
+        return values;
+    }
+
+    // Component similarities over raw layouts, for scanning gallery records without wrapping them
+
+    public static double intensitySimilarity(double[] a, double[] b) {
+        double diff = Math.abs(a[MEAN_INTENSITY] - b[MEAN_INTENSITY]);
+        return Math.max(0, 1 - (diff / 255.0));
+    }
+
+    public static double ratioSimilarity(double[] a, double[] b) {
+        double diff = Math.abs(a[ASPECT_RATIO] - b[ASPECT_RATIO]);
+        return Math.max(0, 1 - diff);
+    }
+
+    public static double sizeSimilarity(double[] a, double[] b) {
+        return Math.min(a[FACE_AREA], b[FACE_AREA]) / Math.max(a[FACE_AREA], b[FACE_AREA]);
+    }
+
+    /**
+     * Mean RGB similarity, used when a histogram is missing on either side
+     */
+    public static double colorSimilarity(double[] a, double[] b) {
+        double redDiff = Math.abs(a[MEAN_RED] - b[MEAN_RED]);
+        double greenDiff = Math.abs(a[MEAN_GREEN] - b[MEAN_GREEN]);
+        double blueDiff = Math.abs(a[MEAN_BLUE] - b[MEAN_BLUE]);
+        return 1.0 - ((redDiff + greenDiff + blueDiff) / (3 * 255.0));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof FaceFeatureVector other
+                && perceptualHash == other.perceptualHash
+                && Arrays.equals(values, other.values)
+                && Objects.equals(lbpHistogram, other.lbpHistogram)
+                && Objects.equals(colorHistogram, other.colorHistogram);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(values) + Long.hashCode(perceptualHash);
+    }
+
+    @Override
+    public String toString() {
+        return "FaceFeatureVector" + Arrays.toString(values) + String.format("{dHash=%016x}", perceptualHash);
+    }
+}
@@ -0,0 +1,110 @@
+package com.college.project.model;
+
+/**
+ * Face Region
+ * Bounding box of a detected face in image pixel coordinates
+ */
+public class FaceRegion {
+
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+    private double confidence;
+    private boolean fullFrame;
+
+    public FaceRegion() {}
+
+    public FaceRegion(int x, int y, int width, int height, double confidence) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.confidence = confidence;
+    }
+
+    /**
+     * Whole-image region, used when no face box could be located
+     */
+    public static FaceRegion fullFrame(int imageWidth, int imageHeight) {
+        FaceRegion region = new FaceRegion(0, 0, imageWidth, imageHeight, 0);
+        region.setFullFrame(true);
+        return region;
+    }
+
+    /**
+     * Intersection over union of two boxes, 0 when they do not overlap
+     */
+    public double overlap(FaceRegion other) {
+        int left = Math.max(x, other.x);
+        int top = Math.max(y, other.y);
+        int right = Math.min(x + width, other.x + other.width);
+        int bottom = Math.min(y + height, other.y + other.height);
+        if (right <= left || bottom <= top) {
+            return 0;
+        }
+        double intersection = (double) (right - left) * (bottom - top);
+        return intersection / ((double) width * height + (double) other.width * other.height - intersection);
+    }
+
+    // Getters and Setters
+    public int getX() {
+        return x;
+    }
+
+    public void setX(int x) {
+        this.x = x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public void setY(int y) {
+        this.y = y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    public boolean isFullFrame() {
+        return fullFrame;
+    }
+
+    public void setFullFrame(boolean fullFrame) {
+        this.fullFrame = fullFrame;
+    }
+
+    @Override
+    public String toString() {
+        return "FaceRegion{" +
+                "x=" + x +
+                ", y=" + y +
+                ", width=" + width +
+                ", height=" + height +
+                ", confidence=" + confidence +
+                ", fullFrame=" + fullFrame +
+                '}';
+    }
+}
@@ -0,0 +1,108 @@
+package com.college.project.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Gallery Match
+ * One ranked candidate from a 1:N search of a probe face against ID card photos
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GalleryMatch {
+
+    private int rank;
+    private int galleryIndex;
+    private String imagePath;
+    private double similarity;
+    private double confidence;
+    private boolean isMatch;
+    private String decisionStage;
+    private StudentDetails studentDetails;
+
+    public GalleryMatch() {}
+
+    public GalleryMatch(int galleryIndex, String imagePath, double similarity, boolean isMatch) {
+        this.galleryIndex = galleryIndex;
+        this.imagePath = imagePath;
+        this.similarity = similarity;
+        this.confidence = Math.round(Math.max(0, Math.min(100, similarity * 100)) * 100.0) / 100.0;
+        this.isMatch = isMatch;
+    }
+
+    // Getters and Setters
+    public int getRank() {
+        return rank;
+    }
+
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+
+    public int getGalleryIndex() {
+        return galleryIndex;
+    }
+
+    public void setGalleryIndex(int galleryIndex) {
+        this.galleryIndex = galleryIndex;
+    }
+
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    public void setImagePath(String imagePath) {
+        this.imagePath = imagePath;
+    }
+
+    public double getSimilarity() {
+        return similarity;
+    }
+
+    public void setSimilarity(double similarity) {
+        this.similarity = similarity;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    public boolean isMatch() {
+        return isMatch;
+    }
+
+    public void setMatch(boolean match) {
+        isMatch = match;
+    }
+
+    /**
+     * Comparison stage whose score decided the match: geometry, color or texture
+     */
+    public String getDecisionStage() {
+        return decisionStage;
+    }
+
+    public void setDecisionStage(String decisionStage) {
+        this.decisionStage = decisionStage;
+    }
+
+    public StudentDetails getStudentDetails() {
+        return studentDetails;
+    }
+
+    public void setStudentDetails(StudentDetails studentDetails) {
+        this.studentDetails = studentDetails;
+    }
+
+    @Override
+    public String toString() {
+        return "GalleryMatch{" +
+                "rank=" + rank +
+                ", imagePath='" + imagePath + '\'' +
+                ", confidence=" + confidence +
+                ", isMatch=" + isMatch +
+                '}';
+    }
+}
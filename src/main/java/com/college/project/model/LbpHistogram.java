@@ -0,0 +1,91 @@
+package com.college.project.model;
+
+import java.util.Arrays;
+
+import com.college.project.imaging.KernelBackends;
+
+/**
+ * LBP Histogram
+ * Uniform local binary pattern histograms of a face, one per cell of a spatial grid,
+ * each normalized to sum to 1 and stored back to back in one flat array
+ */
+public final class LbpHistogram {
+
+    /** 58 uniform 8-neighbour patterns plus one bin for all non-uniform ones */
+    public static final int BINS = 59;
+
+    private final int gridSize;
+    private final float[] bins;
+
+    public LbpHistogram(int gridSize, float[] bins) {
+        if (bins.length != gridSize * gridSize * BINS) {
+            throw new IllegalArgumentException("Expected " + gridSize * gridSize * BINS + " bins but got " + bins.length);
+        }
+        this.gridSize = gridSize;
+        this.bins = bins;
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    public int getCellCount() {
+        return gridSize * gridSize;
+    }
+
+    /**
+     * Total number of bins over all cells
+     */
+    public int getBinCount() {
+        return bins.length;
+    }
+
+    public float get(int bin) {
+        return bins[bin];
+    }
+
+    /**
+     * Chi-square distance averaged over cells: 0 for identical faces, at most 2
+     */
+    public double chiSquare(LbpHistogram other) {
+        checkCompatible(other);
+        return KernelBackends.current().chiSquareSum(bins, other.bins) / getCellCount();
+    }
+
+    /**
+     * Chi-square distance to bins in the same grid layout, e.g. read back from a gallery record
+     */
+    public double chiSquare(float[] otherBins) {
+        if (otherBins.length != bins.length) {
+            throw new IllegalArgumentException("Expected " + bins.length + " bins but got " + otherBins.length);
+        }
+        return KernelBackends.current().chiSquareSum(bins, otherBins) / getCellCount();
+    }
+
+    /**
+     * Histogram intersection averaged over cells: 1 for identical faces, 0 for disjoint ones
+     */
+    public double intersection(LbpHistogram other) {
+        checkCompatible(other);
+        return KernelBackends.current().intersectionSum(bins, other.bins) / getCellCount();
+    }
+
+    private void checkCompatible(LbpHistogram other) {
+        if (other.gridSize != gridSize) {
+            throw new IllegalArgumentException("LBP grids differ: " + gridSize + " vs " + other.gridSize);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof LbpHistogram other && gridSize == other.gridSize && Arrays.equals(bins, other.bins);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * gridSize + Arrays.hashCode(bins);
+    }
+}
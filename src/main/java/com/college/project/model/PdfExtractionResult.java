@@ -0,0 +1,232 @@
+package com.college.project.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * PDF Extraction Result
+ * Validation outcome, text, parsed student details and extracted photos of one ID card PDF,
+ * all gathered from a single parse of the document
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PdfExtractionResult {
+
+    private boolean valid;
+    private String message;
+    private String errorCode;
+    private int pageCount;
+
+    private String text;
+    private StudentDetails studentDetails;
+    private String textMessage;
+    private String textErrorCode;
+
+    private List<ExtractedImage> images = new ArrayList<>();
+    private String imageMessage;
+    private String imageErrorCode;
+
+    public PdfExtractionResult() {}
+
+    /**
+     * Mark the document as rejected by validation
+     */
+    public PdfExtractionResult invalid(String message, String errorCode) {
+        this.valid = false;
+        this.message = message;
+        this.errorCode = errorCode;
+        return this;
+    }
+
+    /**
+     * True when the document was valid and text extraction found text
+     */
+    @JsonIgnore
+    public boolean hasText() {
+        return valid && text != null && textErrorCode == null;
+    }
+
+    /**
+     * True when the document was valid and at least one photo was extracted
+     */
+    @JsonIgnore
+    public boolean hasImages() {
+        return valid && !images.isEmpty() && imageErrorCode == null;
+    }
+
+    /**
+     * Largest extracted image, which is most likely the student photo
+     */
+    public ExtractedImage getStudentPhoto() {
+        return images.stream()
+                .max(Comparator.comparingLong(image -> (long) image.getWidth() * image.getHeight()))
+                .orElse(null);
+    }
+
+    // Getters and Setters
+    public boolean isValid() {
+        return valid;
+    }
+
+    public void setValid(boolean valid) {
+        this.valid = valid;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public void setPageCount(int pageCount) {
+        this.pageCount = pageCount;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public StudentDetails getStudentDetails() {
+        return studentDetails;
+    }
+
+    public void setStudentDetails(StudentDetails studentDetails) {
+        this.studentDetails = studentDetails;
+    }
+
+    public String getTextMessage() {
+        return textMessage;
+    }
+
+    public String getTextErrorCode() {
+        return textErrorCode;
+    }
+
+    public void setTextError(String textMessage, String textErrorCode) {
+        this.textMessage = textMessage;
+        this.textErrorCode = textErrorCode;
+    }
+
+    public List<ExtractedImage> getImages() {
+        return images;
+    }
+
+    public void setImages(List<ExtractedImage> images) {
+        this.images = images;
+    }
+
+    public String getImageMessage() {
+        return imageMessage;
+    }
+
+    public String getImageErrorCode() {
+        return imageErrorCode;
+    }
+
+    public void setImageError(String imageMessage, String imageErrorCode) {
+        this.imageMessage = imageMessage;
+        this.imageErrorCode = imageErrorCode;
+    }
+
+    /**
+     * Extracted Image inner class
+     */
+    public static class ExtractedImage {
+        private String filename;
+        private String path;
+        private int page;
+        private int width;
+        private int height;
+        private long sizeBytes;
+
+        public ExtractedImage() {}
+
+        public ExtractedImage(String filename, String path, int page, int width, int height, long sizeBytes) {
+            this.filename = filename;
+            this.path = path;
+            this.page = page;
+            this.width = width;
+            this.height = height;
+            this.sizeBytes = sizeBytes;
+        }
+
+        // Getters and Setters
+        public String getFilename() {
+            return filename;
+        }
+
+        public void setFilename(String filename) {
+            this.filename = filename;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public int getPage() {
+            return page;
+        }
+
+        public void setPage(int page) {
+            this.page = page;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public void setWidth(int width) {
+            this.width = width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public void setHeight(int height) {
+            this.height = height;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public void setSizeBytes(long sizeBytes) {
+            this.sizeBytes = sizeBytes;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PdfExtractionResult{" +
+                "valid=" + valid +
+                ", pageCount=" + pageCount +
+                ", textLength=" + (text != null ? text.length() : 0) +
+                ", images=" + images.size() +
+                '}';
+    }
+}
@@ -40,6 +40,8 @@ public class VerificationResult {
         private LocalDateTime timestamp;
         private Map<String, Double> similarityBreakdown;
         private double faceDistance;
+        private String decisionStage;
+        private Boolean scoreIsBound;
 
         public VerificationDetails() {
             this.timestamp = LocalDateTime.now();
@@ -93,6 +95,29 @@ public class VerificationResult {
         public void setFaceDistance(double faceDistance) {
             this.faceDistance = faceDistance;
         }
+
+        /**
+         * Comparison stage whose score decided the result: geometry, color or texture
+         */
+        public String getDecisionStage() {
+            return decisionStage;
+        }
+
+        public void setDecisionStage(String decisionStage) {
+            this.decisionStage = decisionStage;
+        }
+
+        /**
+         * True when the stage decided on an upper bound of the similarity, so the reported
+         * confidence was never computed as a score; null otherwise
+         */
+        public Boolean getScoreIsBound() {
+            return scoreIsBound;
+        }
+
+        public void setScoreIsBound(Boolean scoreIsBound) {
+            this.scoreIsBound = scoreIsBound;
+        }
     }
 
     // Getters and Setters
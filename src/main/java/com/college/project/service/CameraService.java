@@ -6,14 +6,19 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.imageio.ImageIO;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.college.project.imaging.DecodedImage;
+import com.college.project.model.FaceRegion;
 import com.github.sarxos.webcam.Webcam;
 import com.github.sarxos.webcam.WebcamResolution;
 
@@ -26,6 +31,13 @@ public class CameraService {
 
     private static final Logger logger = LoggerFactory.getLogger(CameraService.class);
     
+    @Autowired
+    private FaceVerificationService faceVerificationService;
+
+    // Opt-in: reject blurry or badly exposed frames before detection
+    @Value("${app.camera.quality-check:false}")
+    private boolean qualityCheck;
+    
     private Webcam webcam;
     private boolean isCameraActive = false;
     
@@ -185,8 +197,23 @@ public class CameraService {
                 return result;
             }
 
-            // Detect faces in the captured image (simplified approach)
-            int faceCount = detectFacesSimple(image);
+            // With the quality check on, reject blurry or badly exposed frames before detection;
+            // the quality scan is cached on the frame and reused by detection
+            DecodedImage frame = DecodedImage.of(null, image);
+            Map<String, Object> quality = null;
+            if (qualityCheck) {
+                quality = faceVerificationService.validateImageQuality(frame);
+                if (!(Boolean) quality.get("valid")) {
+                    result.put("success", false);
+                    result.put("message", "Captured image rejected: " + quality.get("message"));
+                    result.put("errorCode", quality.get("errorCode"));
+                    return result;
+                }
+            }
+
+            // Detect faces in the captured frame
+            List<FaceRegion> faces = faceVerificationService.detectFaceRegions(frame);
+            int faceCount = faces.size();
             
             if (faceCount == 0) {
                 result.put("success", false);
@@ -210,6 +237,10 @@ public class CameraService {
             result.put("imagePath", imagePath);
             result.put("timestamp", LocalDateTime.now().toString());
             result.put("faceCount", faceCount);
+            result.put("faces", faces);
+            if (quality != null) {
+                result.put("quality", quality.get("details"));
+            }
 
         } catch (IOException e) {
             logger.error("❌ Error saving captured image: {}", e.getMessage());
@@ -226,45 +257,6 @@ public class CameraService {
         return result;
     }
 
-    /**
-     * Simple face detection (fallback method)
-     */
-    private int detectFacesSimple(BufferedImage image) {
-        try {
-            // Simple heuristic: assume face is present if image is reasonable size
-            // and has reasonable brightness variation
-            if (image.getWidth() < 100 || image.getHeight() < 100) {
-                return 0;
-            }
-            
-            // Basic brightness analysis
-            int totalPixels = image.getWidth() * image.getHeight();
-            long brightnessSum = 0;
-            
-            for (int y = 0; y < image.getHeight(); y++) {
-                for (int x = 0; x < image.getWidth(); x++) {
-                    int rgb = image.getRGB(x, y);
-                    int brightness = (int) (0.299 * ((rgb >> 16) & 0xFF) + 
-                                          0.587 * ((rgb >> 8) & 0xFF) + 
-                                          0.114 * (rgb & 0xFF));
-                    brightnessSum += brightness;
-                }
-            }
-            
-            double avgBrightness = (double) brightnessSum / totalPixels;
-            
-            // If image has reasonable brightness, assume face is present
-            if (avgBrightness > 30 && avgBrightness < 225) {
-                return 1; // Assume one face
-            }
-            
-            return 0;
-        } catch (RuntimeException e) {
-            logger.warn("Error in simple face detection: {}", e.getMessage());
-            return 1; // Assume face is present on error
-        }
-    }
-
     /**
      * Get camera status
      */
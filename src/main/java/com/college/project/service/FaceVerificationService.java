@@ -1,22 +1,43 @@
 package com.college.project.service;
 
+import com.college.project.imaging.BufferArena;
+import com.college.project.imaging.ContentHash;
+import com.college.project.imaging.DecodedImage;
+import com.college.project.imaging.FaceMatcher;
+import com.college.project.imaging.FaceNormalizer;
+import com.college.project.imaging.KernelBackends;
+import com.college.project.imaging.LbpExtractor;
+import com.college.project.imaging.PerceptualHash;
+import com.college.project.imaging.PixelKernels;
+import com.college.project.imaging.PixelStats;
+import com.college.project.model.ComparisonMethod;
+import com.college.project.model.FaceFeatureVector;
+import com.college.project.model.FaceRegion;
+import com.college.project.model.LbpHistogram;
 import com.college.project.model.StudentDetails;
 import com.college.project.model.VerificationResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import javax.imageio.ImageIO;
 
 /**
  * Face Verification Service
- * Handles face detection, recognition, and verification using OpenCV for Java
+ * Handles face detection, recognition, and verification; detection runs on the
+ * configured FaceMatcher (OpenCV when available, otherwise pure Java)
  */
 @Service
 public class FaceVerificationService {
@@ -25,15 +46,84 @@ public class FaceVerificationService {
     
     private static final double BASIC_THRESHOLD = 0.4;
 
-    public FaceVerificationService() {
-        logger.info("✅ Face verification service initialized (Java fallback mode)");
+    // Weights of the basic similarity terms
+    private static final double INTENSITY_WEIGHT = 0.3;
+    private static final double RATIO_WEIGHT = 0.2;
+    private static final double SIZE_WEIGHT = 0.2;
+    private static final double COLOR_WEIGHT = 0.3;
+
+    // Comparison stages reported as the decision stage
+    private static final String GEOMETRY_STAGE = "geometry";
+    private static final String COLOR_STAGE = "color";
+    private static final String TEXTURE_STAGE = "texture";
+
+    private final FeatureCache featureCache;
+    private final FaceMatcher faceMatcher;
+    private final int canonicalSize;
+    private final int decodeMaxDimension;
+    // Peak bytes of decoded pixels (and of file bytes held in memory) per request
+    private final long decodeMaxBytes;
+    private final ComparisonMethod defaultMethod;
+    private final int lbpGridSize;
+    private final double lbpThreshold;
+
+    // Cascade exit thresholds on the basic score; pairs between the colour thresholds go on to LBP
+    private final double cascadeGeometryReject;
+    private final double cascadeColorReject;
+    private final double cascadeColorAccept;
+
+    // Image quality gates
+    private final double minContrast;
+    private final double minSharpness;
+    private final int qualityWorkingSize;
+    private final double maxClippedFraction;
+
+    public FaceVerificationService(FaceMatcher faceMatcher,
+                                   @Value("${app.face.feature-cache.capacity:512}") int featureCacheCapacity,
+                                   @Value("${app.face.canonical-size:128}") int canonicalSize,
+                                   @Value("${app.image.decode.max-dimension:1024}") int decodeMaxDimension,
+                                   @Value("${app.image.decode.max-request-bytes:33554432}") long decodeMaxBytes,
+                                   @Value("${app.face.comparison.method:basic}") String comparisonMethod,
+                                   @Value("${app.face.lbp.grid-size:8}") int lbpGridSize,
+                                   @Value("${app.face.lbp.threshold:0.65}") double lbpThreshold,
+                                   @Value("${app.face.cascade.geometry-reject:0.45}") double cascadeGeometryReject,
+                                   @Value("${app.face.cascade.color-reject:0.45}") double cascadeColorReject,
+                                   @Value("${app.face.cascade.color-accept:0.95}") double cascadeColorAccept,
+                                   @Value("${app.image.quality.min-contrast:8}") double minContrast,
+                                   @Value("${app.image.quality.min-sharpness:15}") double minSharpness,
+                                   @Value("${app.image.quality.working-size:1024}") int qualityWorkingSize,
+                                   @Value("${app.image.quality.max-clipped-fraction:0.3}") double maxClippedFraction) {
+        if (canonicalSize < 1) {
+            throw new IllegalArgumentException("Canonical face size must be positive");
+        }
+        if (cascadeColorReject > cascadeColorAccept) {
+            throw new IllegalArgumentException("Cascade colour reject threshold must not exceed the accept threshold");
+        }
+        this.featureCache = new FeatureCache(featureCacheCapacity);
+        this.faceMatcher = faceMatcher;
+        this.canonicalSize = canonicalSize;
+        this.decodeMaxDimension = decodeMaxDimension;
+        this.decodeMaxBytes = decodeMaxBytes;
+        this.defaultMethod = ComparisonMethod.fromValue(comparisonMethod);
+        this.lbpGridSize = lbpGridSize;
+        this.lbpThreshold = lbpThreshold;
+        this.cascadeGeometryReject = cascadeGeometryReject;
+        this.cascadeColorReject = cascadeColorReject;
+        this.cascadeColorAccept = cascadeColorAccept;
+        this.minContrast = minContrast;
+        this.minSharpness = minSharpness;
+        this.qualityWorkingSize = qualityWorkingSize;
+        this.maxClippedFraction = maxClippedFraction;
+        logger.info("✅ Face verification service initialized ({} matcher, {}, {} kernels, feature cache capacity {})",
+                    faceMatcher.name(), defaultMethod.getLabel(), KernelBackends.current().name(), featureCacheCapacity);
     }
+
     /**
-     * Detect faces in image using simple Java methods
+     * Decode an image once so it can be shared by every verification stage
      */
-    public Map<String, Object> detectFaces(String imagePath) {
+    public Map<String, Object> loadImage(String imagePath) {
         Map<String, Object> result = new HashMap<>();
-        
+
         try {
             if (!new File(imagePath).exists()) {
                 result.put("success", false);
@@ -42,8 +132,7 @@ public class FaceVerificationService {
                 return result;
             }
 
-            // Load image using Java ImageIO
-            BufferedImage image = ImageIO.read(new File(imagePath));
+            DecodedImage image = DecodedImage.read(imagePath, decodeMaxDimension, decodeMaxBytes);
             if (image == null) {
                 result.put("success", false);
                 result.put("message", "Could not read image file");
@@ -51,18 +140,51 @@ public class FaceVerificationService {
                 return result;
             }
 
-            // Simple face detection using image analysis
-            int faceCount = detectFacesSimple(image);
-
             result.put("success", true);
-            result.put("faceCount", faceCount);
-            result.put("message", String.format("Detected %d face(s) using Java image analysis", faceCount));
+            result.put("image", image);
 
         } catch (IOException | SecurityException e) {
-            logger.error("Error detecting faces: {}", e.getMessage());
+            logger.error("Error loading image: {}", e.getMessage());
             result.put("success", false);
-            result.put("message", "Face detection failed: " + e.getMessage());
-            result.put("errorCode", "DETECTION_ERROR");
+            result.put("message", "Image loading failed: " + e.getMessage());
+            result.put("errorCode", "IMAGE_READ_ERROR");
+        } catch (RuntimeException e) {
+            logger.error("Unexpected error loading image: {}", e.getMessage());
+            result.put("success", false);
+            result.put("message", "Image loading failed: " + e.getMessage());
+            result.put("errorCode", "IMAGE_READ_ERROR");
+        }
+
+        return result;
+    }
+
+    /**
+     * Detect faces in image using simple Java methods
+     */
+    public Map<String, Object> detectFaces(String imagePath) {
+        Map<String, Object> loaded = loadImage(imagePath);
+        if (!(Boolean) loaded.get("success")) {
+            return loaded;
+        }
+        return detectFaces((DecodedImage) loaded.get("image"));
+    }
+
+    /**
+     * Detect faces in an already decoded image
+     */
+    public Map<String, Object> detectFaces(DecodedImage image) {
+        Map<String, Object> result = new HashMap<>();
+        
+        try {
+            List<FaceRegion> faces = detectFaceRegions(image);
+            boolean located = !faces.isEmpty() && !faces.get(0).isFullFrame();
+
+            result.put("success", true);
+            result.put("faceCount", faces.size());
+            result.put("faces", faces);
+            result.put("message", String.format("Detected %d face(s) using %s", faces.size(),
+                       located ? "integral-image detection" : "Java image analysis"));
+
         } catch (RuntimeException e) {
             logger.error("Unexpected error detecting faces: {}", e.getMessage());
             result.put("success", false);
@@ -73,10 +195,38 @@ public class FaceVerificationService {
         return result;
     }
 
+    /**
+     * Face boxes, strongest first. When the face matcher finds nothing
+     * the brightness heuristic decides, and a face it accepts spans the full frame.
+     */
+    public List<FaceRegion> detectFaceRegions(DecodedImage image) {
+        try {
+            List<FaceRegion> faces = faceMatcher.detect(image.getImage());
+            if (!faces.isEmpty()) {
+                // Report boxes in full-resolution coordinates even when the image was decoded subsampled
+                int subsampling = image.getSubsampling();
+                for (FaceRegion face : faces) {
+                    face.setX(face.getX() * subsampling);
+                    face.setY(face.getY() * subsampling);
+                    face.setWidth(Math.min(face.getWidth() * subsampling, image.getWidth() - face.getX()));
+                    face.setHeight(Math.min(face.getHeight() * subsampling, image.getHeight() - face.getY()));
+                }
+                return faces;
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Error in {} face detection: {}", faceMatcher.name(), e.getMessage());
+        }
+
+        if (detectFacesSimple(image) == 0) {
+            return List.of();
+        }
+        return List.of(FaceRegion.fullFrame(image.getWidth(), image.getHeight()));
+    }
+
     /**
      * Simple face detection using image analysis
      */
-    private int detectFacesSimple(BufferedImage image) {
+    private int detectFacesSimple(DecodedImage image) {
         try {
             // Basic heuristics for face detection
             int width = image.getWidth();
@@ -88,20 +238,7 @@ public class FaceVerificationService {
             }
             
             // Analyze image properties
-            long totalBrightness = 0;
-            int pixelCount = width * height;
-            
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    int rgb = image.getRGB(x, y);
-                    int brightness = (int) (0.299 * ((rgb >> 16) & 0xFF) + 
-                                          0.587 * ((rgb >> 8) & 0xFF) + 
-                                          0.114 * (rgb & 0xFF));
-                    totalBrightness += brightness;
-                }
-            }
-            
-            double avgBrightness = (double) totalBrightness / pixelCount;
+            double avgBrightness = image.getPixelStats().getMeanLuma();
             
             // Simple heuristic: if image has reasonable properties, assume face is present
             if (avgBrightness > 30 && avgBrightness < 225 && width > 150 && height > 150) {
@@ -116,13 +253,93 @@ public class FaceVerificationService {
     }
 
     /**
-     * Extract basic face features for comparison using Java
+     * Extract basic face features for comparison using Java, as the configured comparison method needs them
      */
     public Map<String, Object> extractFaceFeatures(String imagePath) {
+        return extractFaceFeatures(imagePath, defaultMethod);
+    }
+
+    /**
+     * Extract face features for the given comparison method; LBP histograms are only
+     * computed when the method compares texture
+     */
+    public Map<String, Object> extractFaceFeatures(String imagePath, ComparisonMethod method) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            if (!new File(imagePath).exists()) {
+                result.put("success", false);
+                result.put("message", "Image file not found");
+                result.put("errorCode", "FILE_NOT_FOUND");
+                return result;
+            }
+
+            // Hash the bytes first so a repeated card skips decoding entirely; a scan too large
+            // for the memory budget is hashed and decoded as a stream instead of held in memory
+            Path file = Path.of(imagePath);
+            boolean streamed = !DecodedImage.fitsInMemory(Files.size(file), decodeMaxBytes);
+            byte[] bytes = streamed ? null : Files.readAllBytes(file);
+            String contentHash = streamed ? ContentHash.ofFile(file) : ContentHash.of(bytes);
+
+            FaceFeatureVector cached = featureCache.get(contentHash);
+            if (covers(cached, method)) {
+                return featureResult(cached, true);
+            }
+
+            DecodedImage image = streamed
+                    ? DecodedImage.stream(imagePath, contentHash, decodeMaxDimension, decodeMaxBytes)
+                    : DecodedImage.decode(imagePath, bytes, contentHash, decodeMaxDimension, decodeMaxBytes);
+            if (image == null) {
+                result.put("success", false);
+                result.put("message", "Could not read image file");
+                result.put("errorCode", "IMAGE_READ_ERROR");
+                return result;
+            }
+
+            return computeFaceFeatures(image, method.usesTexture());
+
+        } catch (IOException | SecurityException e) {
+            logger.error("Error loading image for feature extraction: {}", e.getMessage());
+            result.put("success", false);
+            result.put("message", "Image loading failed: " + e.getMessage());
+            result.put("errorCode", "IMAGE_READ_ERROR");
+        } catch (RuntimeException e) {
+            logger.error("Unexpected error loading image for feature extraction: {}", e.getMessage());
+            result.put("success", false);
+            result.put("message", "Image loading failed: " + e.getMessage());
+            result.put("errorCode", "IMAGE_READ_ERROR");
+        }
+
+        return result;
+    }
+
+    /**
+     * Extract basic face features from an already decoded image
+     */
+    public Map<String, Object> extractFaceFeatures(DecodedImage decodedImage) {
+        FaceFeatureVector cached = featureCache.get(decodedImage.getContentHash());
+        if (covers(cached, defaultMethod)) {
+            return featureResult(cached, true);
+        }
+        return computeFaceFeatures(decodedImage, defaultMethod.usesTexture());
+    }
+
+    /**
+     * Whether cached features hold everything the method compares; features cached
+     * without an LBP histogram are recomputed for a texture method
+     */
+    private static boolean covers(FaceFeatureVector cached, ComparisonMethod method) {
+        return cached != null && (cached.getLbpHistogram() != null || !method.usesTexture());
+    }
+
+    /**
+     * Detect and featurize a decoded image, caching the features on success
+     */
+    private Map<String, Object> computeFaceFeatures(DecodedImage decodedImage, boolean withTexture) {
         Map<String, Object> result = new HashMap<>();
         
         // First detect faces
-        Map<String, Object> detection = detectFaces(imagePath);
+        Map<String, Object> detection = detectFaces(decodedImage);
         if (!(Boolean) detection.get("success")) {
             return detection;
         }
@@ -137,57 +354,20 @@ public class FaceVerificationService {
         }
 
         try {
-            // Load image and extract features
-            BufferedImage image = ImageIO.read(new File(imagePath));
-            
-            // Calculate basic image features
-            int width = image.getWidth();
-            int height = image.getHeight();
-            
-            long totalBrightness = 0;
-            long totalRed = 0, totalGreen = 0, totalBlue = 0;
-            int pixelCount = width * height;
-            
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    int rgb = image.getRGB(x, y);
-                    int red = (rgb >> 16) & 0xFF;
-                    int green = (rgb >> 8) & 0xFF;
-                    int blue = rgb & 0xFF;
-                    
-                    totalRed += red;
-                    totalGreen += green;
-                    totalBlue += blue;
-                    
-                    int brightness = (int) (0.299 * red + 0.587 * green + 0.114 * blue);
-                    totalBrightness += brightness;
-                }
-            }
-            
-            double avgBrightness = (double) totalBrightness / pixelCount;
-            double avgRed = (double) totalRed / pixelCount;
-            double avgGreen = (double) totalGreen / pixelCount;
-            double avgBlue = (double) totalBlue / pixelCount;
-
-            // Create feature map
-            Map<String, Object> features = new HashMap<>();
-            features.put("meanIntensity", avgBrightness);
-            features.put("meanRed", avgRed);
-            features.put("meanGreen", avgGreen);
-            features.put("meanBlue", avgBlue);
-            features.put("faceArea", width * height);
-            features.put("aspectRatio", (double) width / height);
-            features.put("imageSize", new int[]{width, height});
+            // Featurize the strongest face box at canonical size, not the background around it.
+            // Width and height keep the box's source geometry for the ratio and size terms.
+            @SuppressWarnings("unchecked")
+            FaceRegion face = ((List<FaceRegion>) detection.get("faces")).get(0);
+            BufferedImage canonical = normalizeFace(decodedImage, face);
+            PixelStats stats = PixelKernels.scan(canonical);
+            FaceFeatureVector features = FaceFeatureVector.of(
+                stats.getMeanLuma(), stats.getMeanRed(), stats.getMeanGreen(), stats.getMeanBlue(),
+                face.getWidth(), face.getHeight(), PerceptualHash.dHash(canonical),
+                withTexture ? LbpExtractor.extract(canonical, lbpGridSize) : null, stats.getColorHistogram());
 
-            result.put("success", true);
-            result.put("message", "Face features extracted successfully");
-            result.put("features", features);
+            featureCache.put(decodedImage.getContentHash(), features);
+            return featureResult(features, false);
 
-        } catch (IOException | SecurityException e) {
-            logger.error("Error extracting face features: {}", e.getMessage());
-            result.put("success", false);
-            result.put("message", "Face feature extraction failed: " + e.getMessage());
-            result.put("errorCode", "FEATURE_EXTRACTION_ERROR");
         } catch (RuntimeException e) {
             logger.error("Unexpected error extracting face features: {}", e.getMessage());
             result.put("success", false);
@@ -197,19 +377,167 @@ public class FaceVerificationService {
 
         return result;
     }
+
+    /**
+     * Crop a detected face and resample it to the canonical size
+     */
+    public BufferedImage normalizeFace(DecodedImage image, FaceRegion face) {
+        Rectangle region = new Rectangle(face.getX(), face.getY(), face.getWidth(), face.getHeight());
+        return FaceNormalizer.normalize(image.getRegion(region, canonicalSize), canonicalSize);
+    }
+
+    /**
+     * Build a successful feature extraction result
+     */
+    private Map<String, Object> featureResult(FaceFeatureVector features, boolean cached) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("message", "Face features extracted successfully");
+        result.put("features", features);
+        result.put("cached", cached);
+        return result;
+    }
+
+    /**
+     * Feature cache hit, miss and eviction counters
+     */
+    public Map<String, Object> getFeatureCacheStats() {
+        return featureCache.getStats();
+    }
+
+    /**
+     * Detection engine and every setting that changes the features extracted from an image, or
+     * whether an image passes the quality gates; persisted gallery features are only valid for these
+     */
+    public String getFeatureSettings() {
+        return faceMatcher.settings()
+                + ";canonical=" + canonicalSize
+                + ";decode=" + decodeMaxDimension + "/" + decodeMaxBytes
+                + ";lbp=" + (defaultMethod.usesTexture() ? lbpGridSize : 0)
+                + ";quality=" + minContrast + "/" + minSharpness + "/" + maxClippedFraction + "@" + qualityWorkingSize;
+    }
+
+    /**
+     * Scratch buffer arena reuse counters, summed over all threads
+     */
+    public Map<String, Object> getBufferArenaStats() {
+        return BufferArena.getStats();
+    }
+
+    /**
+     * Comparison method used when a request does not name one, including gallery searches
+     */
+    public ComparisonMethod getComparisonMethod() {
+        return defaultMethod;
+    }
+
     /**
-     * Compare two face images using basic OpenCV methods
+     * Compare two face images using the configured comparison method
      */
     public VerificationResult compareFaces(String image1Path, String image2Path) {
-        VerificationResult result = new VerificationResult();
-        
+        return compareFaces(image1Path, image2Path, defaultMethod);
+    }
+
+    /**
+     * Compare two face images using the given comparison method
+     */
+    public VerificationResult compareFaces(String image1Path, String image2Path, ComparisonMethod method) {
+        logger.info("Comparing faces: {} vs {} ({})", image1Path, image2Path, method.getLabel());
+        return compareFeatures(extractFaceFeatures(image1Path, method), extractFaceFeatures(image2Path, method),
+                               image1Path, image2Path, method);
+    }
+
+    /**
+     * Compare two already decoded face images
+     */
+    public VerificationResult compareFaces(DecodedImage image1, DecodedImage image2) {
+        logger.info("Comparing faces: {} vs {} ({})", image1.getPath(), image2.getPath(), defaultMethod.getLabel());
+        return compareFeatures(extractFaceFeatures(image1), extractFaceFeatures(image2),
+                               image1.getPath(), image2.getPath(), defaultMethod);
+    }
+
+    /**
+     * Compare one probe against many candidates using the configured comparison method
+     */
+    public Map<String, Object> compareBatch(String probePath, List<String> candidatePaths, int topK, double minConfidence) {
+        return compareBatch(probePath, candidatePaths, defaultMethod, topK, minConfidence);
+    }
+
+    /**
+     * Compare one probe against many candidates. The probe is featurized once and
+     * candidates go through the feature cache. Results are sorted by confidence,
+     * highest first; those below minConfidence (percent) are dropped and at most
+     * topK are kept (topK <= 0 keeps all).
+     */
+    public Map<String, Object> compareBatch(String probePath, List<String> candidatePaths, ComparisonMethod method,
+                                            int topK, double minConfidence) {
+        Map<String, Object> result = new HashMap<>();
+        logger.info("Batch comparison: {} vs {} candidate(s) ({})", probePath, candidatePaths.size(), method.getLabel());
+
         try {
-            logger.info("Comparing faces: {} vs {}", image1Path, image2Path);
+            long start = System.nanoTime();
+            Map<String, Object> probe = extractFaceFeatures(probePath, method);
+            if (!(Boolean) probe.get("success")) {
+                result.put("success", false);
+                result.put("message", "Probe image: " + probe.get("message"));
+                result.put("errorCode", probe.get("errorCode"));
+                return result;
+            }
 
-            // Extract features from both images
-            Map<String, Object> features1 = extractFaceFeatures(image1Path);
-            Map<String, Object> features2 = extractFaceFeatures(image2Path);
+            List<VerificationResult> results = new ArrayList<>();
+            List<Map<String, Object>> failures = new ArrayList<>();
+            int belowMinimum = 0;
+            for (String candidatePath : candidatePaths) {
+                Map<String, Object> candidate = extractFaceFeatures(candidatePath, method);
+                if (!(Boolean) candidate.get("success")) {
+                    failures.add(Map.of("imagePath", String.valueOf(candidatePath),
+                                        "message", String.valueOf(candidate.get("message"))));
+                    continue;
+                }
+                VerificationResult comparison = compareFeatures(probe, candidate, probePath, candidatePath, method);
+                if (comparison.getConfidence() < minConfidence) {
+                    belowMinimum++;
+                    continue;
+                }
+                results.add(comparison);
+            }
+
+            results.sort(Comparator.comparingDouble(VerificationResult::getConfidence).reversed());
+            if (topK > 0 && results.size() > topK) {
+                results = new ArrayList<>(results.subList(0, topK));
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            result.put("success", true);
+            result.put("message", String.format("Compared %d candidate(s) in %d ms",
+                                                candidatePaths.size() - failures.size(), elapsedMillis));
+            result.put("results", results);
+            result.put("matchCount", results.stream().filter(VerificationResult::isMatch).count());
+            result.put("compared", candidatePaths.size() - failures.size());
+            result.put("belowMinimum", belowMinimum);
+            result.put("failed", failures.size());
+            result.put("failures", failures);
+            result.put("method", methodLabel(method));
+            result.put("elapsedMillis", elapsedMillis);
+
+        } catch (RuntimeException e) {
+            logger.error("Error in batch comparison: {}", e.getMessage());
+            result.put("success", false);
+            result.put("message", "Batch comparison failed: " + e.getMessage());
+            result.put("errorCode", "BATCH_COMPARISON_ERROR");
+        }
+
+        return result;
+    }
 
+    /**
+     * Score two feature extraction results and build the verification result
+     */
+    private VerificationResult compareFeatures(Map<String, Object> features1, Map<String, Object> features2,
+                                               String image1Path, String image2Path, ComparisonMethod method) {
+        VerificationResult result = new VerificationResult();
+        
+        try {
             if (!(Boolean) features1.get("success")) {
                 result.setResult("Verification Failed");
                 result.setMatch(false);
@@ -226,67 +554,62 @@ public class FaceVerificationService {
                 return result;
             }
 
-            // Get feature maps
-            @SuppressWarnings("unchecked")
-            Map<String, Object> f1 = (Map<String, Object>) features1.get("features");
-            @SuppressWarnings("unchecked")
-            Map<String, Object> f2 = (Map<String, Object>) features2.get("features");
-
-            // Calculate similarity metrics using the new features
-            double intensityDiff = Math.abs((Double) f1.get("meanIntensity") - (Double) f2.get("meanIntensity"));
-            double intensitySimilarity = Math.max(0, 1 - (intensityDiff / 255.0));
-
-            double ratioDiff = Math.abs((Double) f1.get("aspectRatio") - (Double) f2.get("aspectRatio"));
-            double ratioSimilarity = Math.max(0, 1 - ratioDiff);
-
-            int area1 = (Integer) f1.get("faceArea");
-            int area2 = (Integer) f2.get("faceArea");
-            double sizeSimilarity = (double) Math.min(area1, area2) / Math.max(area1, area2);
+            FaceFeatureVector f1 = (FaceFeatureVector) features1.get("features");
+            FaceFeatureVector f2 = (FaceFeatureVector) features2.get("features");
 
-            // Color similarity
-            double redDiff = Math.abs((Double) f1.get("meanRed") - (Double) f2.get("meanRed"));
-            double greenDiff = Math.abs((Double) f1.get("meanGreen") - (Double) f2.get("meanGreen"));
-            double blueDiff = Math.abs((Double) f1.get("meanBlue") - (Double) f2.get("meanBlue"));
-            double colorSimilarity = 1.0 - ((redDiff + greenDiff + blueDiff) / (3 * 255.0));
-
-            // Combine similarities (weighted average)
-            double combinedSimilarity = (intensitySimilarity * 0.3) + 
-                                      (ratioSimilarity * 0.2) + 
-                                      (sizeSimilarity * 0.2) + 
-                                      (colorSimilarity * 0.3);
+            Map<String, Double> breakdown = new HashMap<>();
+            VerificationResult.VerificationDetails details = new VerificationResult.VerificationDetails();
+            Comparison comparison = new Comparison();
+            compare(f1, candidate(f2), method, comparison, breakdown);
+            if (!Double.isNaN(comparison.getChiSquare())) {
+                // Intersection is reported alongside the chi-square distance that decided
+                double intersection = f1.getLbpHistogram().intersection(f2.getLbpHistogram());
+                breakdown.put("lbpIntersection", Math.round(intersection * 10000.0) / 10000.0);
+                details.setFaceDistance(Math.round(comparison.getChiSquare() * 10000.0) / 10000.0);
+            }
+            double combinedSimilarity = comparison.getScore();
+            double threshold = comparison.getThreshold();
+            String decisionStage = comparison.getStage();
 
             // Convert to confidence percentage
             double confidence = Math.max(0, Math.min(100, combinedSimilarity * 100));
 
             // Determine if faces match
-            boolean isMatch = combinedSimilarity >= BASIC_THRESHOLD;
+            boolean isMatch = comparison.isMatch();
+            String methodName = method == ComparisonMethod.CASCADE
+                ? methodName(method) + ", " + decisionStage + " stage" : methodName(method);
 
             // Set result
             result.setResult(isMatch ? "Verified" : "Not Verified");
             result.setMatch(isMatch);
             result.setConfidence(Math.round(confidence * 100.0) / 100.0);
-            result.setMethod("Basic OpenCV comparison (Java)");
+            result.setMethod(methodLabel(method));
             
-            String message = isMatch ? 
-                String.format("Faces appear to match with %.2f%% confidence (basic method)", confidence) :
-                String.format("Faces do not appear to match. Confidence: %.2f%% (basic method)", confidence);
+            String message;
+            if (comparison.isScoreBound()) {
+                message = String.format("Faces do not appear to match. Confidence: at most %.2f%% (%s)", confidence, methodName);
+            } else {
+                message = isMatch ?
+                    String.format("Faces appear to match with %.2f%% confidence (%s)", confidence, methodName) :
+                    String.format("Faces do not appear to match. Confidence: %.2f%% (%s)", confidence, methodName);
+            }
             result.setMessage(message);
 
             // Set verification details
-            VerificationResult.VerificationDetails details = new VerificationResult.VerificationDetails();
-            details.setToleranceUsed(BASIC_THRESHOLD);
+            details.setToleranceUsed(threshold);
             details.setCameraImage(image1Path);
             details.setIdCardImage(image2Path);
             details.setTimestamp(LocalDateTime.now());
-            
-            Map<String, Double> breakdown = new HashMap<>();
-            breakdown.put("intensitySimilarity", Math.round(intensitySimilarity * 10000.0) / 10000.0);
-            breakdown.put("ratioSimilarity", Math.round(ratioSimilarity * 10000.0) / 10000.0);
-            breakdown.put("sizeSimilarity", Math.round(sizeSimilarity * 10000.0) / 10000.0);
             details.setSimilarityBreakdown(breakdown);
+            details.setDecisionStage(decisionStage);
+            if (comparison.isScoreBound()) {
+                details.setScoreIsBound(true);
+            }
             
             result.setVerificationDetails(details);
-            result.setWarning("This is a basic comparison method. For better accuracy, advanced face recognition libraries are recommended.");
+            if (method == ComparisonMethod.BASIC) {
+                result.setWarning("This is a basic comparison method. For better accuracy, advanced face recognition libraries are recommended.");
+            }
 
             logger.info("Face comparison result: {}, Similarity: {:.4f}, Confidence: {:.2f}%", 
                        result.getResult(), combinedSimilarity, confidence);
@@ -302,24 +625,170 @@ public class FaceVerificationService {
         return result;
     }
 
+    /**
+     * Score a probe against a candidate with the given method. Colour and texture are only
+     * asked of the candidate by the stages that use them. Nothing is allocated when breakdown
+     * is null, so gallery searches run this once per record; otherwise each computed term is
+     * added to the breakdown.
+     */
+    void compare(FaceFeatureVector probe, Candidate candidate, ComparisonMethod method, Comparison out,
+                 Map<String, Double> breakdown) {
+        out.chiSquare = Double.NaN;
+        out.scoreBound = false;
+        if (method == ComparisonMethod.LBP_HISTOGRAM) {
+            double texture = textureSimilarity(probe, candidate, out, breakdown);
+            out.decide(TEXTURE_STAGE, texture, lbpThreshold, texture >= lbpThreshold);
+            return;
+        }
+
+        double geometry = geometrySimilarity(probe.rawValues(), candidate.values(), breakdown);
+        if (method == ComparisonMethod.CASCADE) {
+            // Stage 1: intensity, ratio and size bound the basic score, since colour adds at most its weight
+            double upperBound = geometry + COLOR_WEIGHT;
+            addTerm(breakdown, "basicUpperBound", upperBound);
+            if (upperBound < cascadeGeometryReject) {
+                // The basic score was never computed; the bound is reported as such
+                out.decide(GEOMETRY_STAGE, upperBound, cascadeGeometryReject, false);
+                out.scoreBound = true;
+                return;
+            }
+        }
+
+        double colorSimilarity = candidate.colorSimilarity(probe);
+        double basic = geometry + colorSimilarity * COLOR_WEIGHT;
+        addTerm(breakdown, "colorSimilarity", colorSimilarity);
+        if (method != ComparisonMethod.CASCADE) {
+            out.decide(COLOR_STAGE, basic, BASIC_THRESHOLD, basic >= BASIC_THRESHOLD);
+            return;
+        }
+
+        // Stage 2: the full basic score settles clear non-matches and near-identical faces
+        addTerm(breakdown, "basicSimilarity", basic);
+        if (basic < cascadeColorReject) {
+            out.decide(COLOR_STAGE, basic, cascadeColorReject, false);
+        } else if (basic >= cascadeColorAccept) {
+            out.decide(COLOR_STAGE, basic, cascadeColorAccept, true);
+        } else {
+            // Stage 3: only ambiguous pairs pay for the LBP texture comparison
+            double texture = textureSimilarity(probe, candidate, out, breakdown);
+            out.decide(TEXTURE_STAGE, texture, lbpThreshold, texture >= lbpThreshold);
+        }
+    }
+
+    /**
+     * Weighted intensity, ratio and size terms of the basic score, i.e. everything but colour
+     */
+    private static double geometrySimilarity(double[] probe, double[] candidate, Map<String, Double> breakdown) {
+        double intensitySimilarity = FaceFeatureVector.intensitySimilarity(probe, candidate);
+        double ratioSimilarity = FaceFeatureVector.ratioSimilarity(probe, candidate);
+        double sizeSimilarity = FaceFeatureVector.sizeSimilarity(probe, candidate);
+        addTerm(breakdown, "intensitySimilarity", intensitySimilarity);
+        addTerm(breakdown, "ratioSimilarity", ratioSimilarity);
+        addTerm(breakdown, "sizeSimilarity", sizeSimilarity);
+        return (intensitySimilarity * INTENSITY_WEIGHT) + (ratioSimilarity * RATIO_WEIGHT) + (sizeSimilarity * SIZE_WEIGHT);
+    }
+
+    /**
+     * LBP similarity, 1 - chi-square / 2
+     */
+    private static double textureSimilarity(FaceFeatureVector probe, Candidate candidate, Comparison out,
+                                            Map<String, Double> breakdown) {
+        LbpHistogram histogram = probe.getLbpHistogram();
+        if (histogram == null) {
+            throw new IllegalStateException("LBP histogram not available for comparison");
+        }
+        double chiSquare = candidate.chiSquare(histogram);
+        out.chiSquare = chiSquare;
+        addTerm(breakdown, "lbpChiSquare", chiSquare);
+        return 1.0 - chiSquare / 2.0;
+    }
+
+    private static void addTerm(Map<String, Double> breakdown, String term, double value) {
+        if (breakdown != null) {
+            breakdown.put(term, Math.round(value * 10000.0) / 10000.0);
+        }
+    }
+
+    /**
+     * Candidate backed by extracted features
+     */
+    static Candidate candidate(FaceFeatureVector features) {
+        return new Candidate() {
+            @Override
+            public double[] values() {
+                return features.rawValues();
+            }
+
+            @Override
+            public double colorSimilarity(FaceFeatureVector probe) {
+                return probe.colorSimilarity(features);
+            }
+
+            @Override
+            public double chiSquare(LbpHistogram probe) {
+                LbpHistogram histogram = features.getLbpHistogram();
+                if (histogram == null) {
+                    throw new IllegalStateException("LBP histogram not available for comparison");
+                }
+                return probe.chiSquare(histogram);
+            }
+        };
+    }
+
     /**
      * Complete identity verification process
      */
     public VerificationResult verifyIdentity(String cameraImagePath, String idCardImagePath, StudentDetails studentDetails) {
+        return completeVerification(compareFaces(cameraImagePath, idCardImagePath), defaultMethod, studentDetails);
+    }
+
+    /**
+     * Complete identity verification process for already decoded images
+     */
+    public VerificationResult verifyIdentity(DecodedImage cameraImage, DecodedImage idCardImage, StudentDetails studentDetails) {
+        return completeVerification(compareFaces(cameraImage, idCardImage), defaultMethod, studentDetails);
+    }
+
+    /**
+     * Short method name used in result messages and recommendations
+     */
+    private static String methodName(ComparisonMethod method) {
+        return switch (method) {
+            case LBP_HISTOGRAM -> "LBP method";
+            case CASCADE -> "cascade method";
+            default -> "basic method";
+        };
+    }
+
+    /**
+     * Method reported in results: the comparison method plus the engine that detected the faces
+     */
+    private String methodLabel(ComparisonMethod method) {
+        return method.getLabel() + " (" + faceMatcher.name() + ")";
+    }
+
+    /**
+     * Attach student details and a recommendation to a comparison result
+     */
+    private VerificationResult completeVerification(VerificationResult result, ComparisonMethod method,
+                                                    StudentDetails studentDetails) {
         try {
             logger.info("Starting identity verification process (Java implementation)");
-
-            // Perform face comparison
-            VerificationResult result = compareFaces(cameraImagePath, idCardImagePath);
             
             // Set student details
             result.setStudentDetails(studentDetails != null ? studentDetails : new StudentDetails());
 
             // Add recommendation based on confidence
-            if (result.getConfidence() >= 70) {
-                result.setRecommendation("Moderate confidence match (basic method)");
+            String methodName = methodName(method);
+            VerificationResult.VerificationDetails details = result.getVerificationDetails();
+            if (details != null && Boolean.TRUE.equals(details.getScoreIsBound())) {
+                // Confidence is only an upper bound here, so it does not grade the match
+                result.setRecommendation("Rejected at the " + details.getDecisionStage()
+                                         + " stage (" + methodName + ") - manual review required");
+            } else if (result.getConfidence() >= 70) {
+                result.setRecommendation("Moderate confidence match (" + methodName + ")");
             } else if (result.getConfidence() >= 50) {
-                result.setRecommendation("Low confidence match (basic method)");
+                result.setRecommendation("Low confidence match (" + methodName + ")");
             } else {
                 result.setRecommendation("Very low confidence - manual review required");
             }
@@ -345,19 +814,26 @@ public class FaceVerificationService {
      * Validate image quality for face recognition using Java
      */
     public Map<String, Object> validateImageQuality(String imagePath) {
+        Map<String, Object> loaded = loadImage(imagePath);
+        if (!(Boolean) loaded.get("success")) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("valid", false);
+            result.put("message", loaded.get("message"));
+            result.put("errorCode", loaded.get("errorCode"));
+            return result;
+        }
+        return validateImageQuality((DecodedImage) loaded.get("image"));
+    }
+
+    /**
+     * Validate image quality of an already decoded image
+     */
+    public Map<String, Object> validateImageQuality(DecodedImage decodedImage) {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            BufferedImage image = ImageIO.read(new File(imagePath));
-            if (image == null) {
-                result.put("valid", false);
-                result.put("message", "Could not read image file");
-                result.put("errorCode", "IMAGE_READ_ERROR");
-                return result;
-            }
-
-            int height = image.getHeight();
-            int width = image.getWidth();
+            int height = decodedImage.getHeight();
+            int width = decodedImage.getWidth();
 
             // Check minimum resolution
             if (width < 100 || height < 100) {
@@ -367,21 +843,11 @@ public class FaceVerificationService {
                 return result;
             }
 
-            // Check brightness using Java
-            long totalBrightness = 0;
+            // Exposure comes from the image's single cached pixel scan, which face detection
+            // and feature extraction reuse afterwards
             int pixelCount = width * height;
-            
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    int rgb = image.getRGB(x, y);
-                    int brightness = (int) (0.299 * ((rgb >> 16) & 0xFF) + 
-                                          0.587 * ((rgb >> 8) & 0xFF) + 
-                                          0.114 * (rgb & 0xFF));
-                    totalBrightness += brightness;
-                }
-            }
-            
-            double meanBrightness = (double) totalBrightness / pixelCount;
+            PixelStats stats = decodedImage.getPixelStats();
+            double meanBrightness = stats.getMeanLuma();
 
             if (meanBrightness < 30) {
                 result.put("valid", false);
@@ -397,20 +863,55 @@ public class FaceVerificationService {
                 return result;
             }
 
+            double highlightClipping = stats.getHighlightClipping();
+            if (highlightClipping > maxClippedFraction) {
+                result.put("valid", false);
+                result.put("message", String.format("Image is overexposed: %.0f%% of pixels are blown out", highlightClipping * 100));
+                result.put("errorCode", "OVEREXPOSED");
+                return result;
+            }
+
+            double shadowClipping = stats.getShadowClipping();
+            if (shadowClipping > maxClippedFraction) {
+                result.put("valid", false);
+                result.put("message", String.format("Image is underexposed: %.0f%% of pixels are crushed to black", shadowClipping * 100));
+                result.put("errorCode", "UNDEREXPOSED");
+                return result;
+            }
+
+            // Contrast and sharpness are scale dependent (subsampling a blurry scan makes it look
+            // sharp), so they are measured at the fixed working size rather than the decode's
+            PixelStats workingStats = decodedImage.getWorkingScaleStats(qualityWorkingSize);
+            double contrast = Math.sqrt(workingStats.getLumaVariance());
+            if (contrast < minContrast) {
+                result.put("valid", false);
+                result.put("message", String.format("Image contrast too low: %.1f (minimum %.1f)", contrast, minContrast));
+                result.put("errorCode", "LOW_CONTRAST");
+                return result;
+            }
+
+            double sharpness = workingStats.getLaplacianVariance();
+            if (sharpness < minSharpness) {
+                result.put("valid", false);
+                result.put("message", String.format("Image is too blurry: sharpness %.1f (minimum %.1f)", sharpness, minSharpness));
+                result.put("errorCode", "BLURRY");
+                return result;
+            }
+
             Map<String, Object> details = new HashMap<>();
             details.put("resolution", String.format("%dx%d", width, height));
             details.put("brightness", Math.round(meanBrightness * 100.0) / 100.0);
+            details.put("contrast", Math.round(contrast * 100.0) / 100.0);
+            details.put("sharpness", Math.round(sharpness * 100.0) / 100.0);
+            details.put("highlightClipping", Math.round(highlightClipping * 10000.0) / 10000.0);
+            details.put("shadowClipping", Math.round(shadowClipping * 10000.0) / 10000.0);
             details.put("pixelCount", pixelCount);
+            details.put("measuredAt", String.format("%dx%d", workingStats.getWidth(), workingStats.getHeight()));
 
             result.put("valid", true);
             result.put("message", "Image quality is acceptable for face recognition");
             result.put("details", details);
 
-        } catch (IOException | SecurityException e) {
-            logger.error("Error validating image quality: {}", e.getMessage());
-            result.put("valid", false);
-            result.put("message", "Image quality validation failed: " + e.getMessage());
-            result.put("errorCode", "VALIDATION_ERROR");
         } catch (RuntimeException e) {
             logger.error("Unexpected error validating image quality: {}", e.getMessage());
             result.put("valid", false);
@@ -420,4 +921,78 @@ public class FaceVerificationService {
 
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * Candidate side of a comparison, either extracted features or a record read in place
+     * from a gallery index
+     */
+    interface Candidate {
+
+        /**
+         * Features in raw {@link FaceFeatureVector} layout
+         */
+        double[] values();
+
+        /**
+         * Colour similarity to the probe in [0, 1]
+         */
+        double colorSimilarity(FaceFeatureVector probe);
+
+        /**
+         * LBP chi-square distance to the probe's histogram
+         */
+        double chiSquare(LbpHistogram probe);
+    }
+
+    /**
+     * Outcome of one comparison; gallery workers reuse one instance for every record they score
+     */
+    static final class Comparison {
+        private String stage;
+        private double score;
+        private double threshold;
+        private boolean match;
+        private boolean scoreBound;
+        private double chiSquare = Double.NaN;
+
+        private void decide(String stage, double score, double threshold, boolean match) {
+            this.stage = stage;
+            this.score = score;
+            this.threshold = threshold;
+            this.match = match;
+        }
+
+        /**
+         * Comparison stage whose score decided the result: geometry, color or texture
+         */
+        String getStage() {
+            return stage;
+        }
+
+        double getScore() {
+            return score;
+        }
+
+        double getThreshold() {
+            return threshold;
+        }
+
+        boolean isMatch() {
+            return match;
+        }
+
+        /**
+         * True when the stage rejected on an upper bound, so the score is a bound and not a similarity
+         */
+        boolean isScoreBound() {
+            return scoreBound;
+        }
+
+        /**
+         * LBP chi-square distance, NaN when texture was not compared
+         */
+        double getChiSquare() {
+            return chiSquare;
+        }
+    }
+}
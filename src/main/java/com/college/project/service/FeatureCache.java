@@ -0,0 +1,117 @@
+package com.college.project.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.college.project.model.FaceFeatureVector;
+
+/**
+ * Feature Cache
+ * Bounded LRU cache of extracted face features keyed by image content hash
+ */
+public class FeatureCache {
+
+    private final int capacity;
+    private final LinkedHashMap<String, FaceFeatureVector> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public FeatureCache(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        // Access order turns the map into an LRU list; the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FaceFeatureVector> eldest) {
+                if (size() > FeatureCache.this.capacity) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Look up features by content hash, counting the hit or miss
+     */
+    public FaceFeatureVector get(String contentHash) {
+        if (contentHash == null || capacity == 0) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        FaceFeatureVector features;
+        synchronized (entries) {
+            features = entries.get(contentHash);
+        }
+
+        if (features != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return features;
+    }
+
+    /**
+     * Store features for a content hash, evicting the least recently used entry when full
+     */
+    public void put(String contentHash, FaceFeatureVector features) {
+        if (contentHash == null || features == null || capacity == 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(contentHash, features);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Snapshot of the cache counters
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("capacity", capacity);
+        stats.put("size", size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("hitRate", lookups == 0 ? 0.0 : Math.round(hitCount * 10000.0 / lookups) / 10000.0);
+        return stats;
+    }
+}
@@ -0,0 +1,154 @@
+package com.college.project.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.college.project.gallery.GalleryEntry;
+import com.college.project.gallery.GalleryIndex;
+import com.college.project.imaging.ContentHash;
+import com.college.project.model.FaceFeatureVector;
+import com.college.project.model.StudentDetails;
+
+/**
+ * Gallery Index Service
+ * Keeps a persistent gallery index per ID card PDF, rebuilt only when the PDF or the face feature settings change
+ */
+@Service
+public class GalleryIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GalleryIndexService.class);
+
+    private static final String INDEX_FILE = "gallery.idx";
+    private static final String DETAILS_FILE = "gallery-students.dat";
+
+    private final GallerySearchService gallerySearchService;
+    private final FaceVerificationService faceVerificationService;
+    private final Path indexDirectory;
+
+    public GalleryIndexService(GallerySearchService gallerySearchService,
+                               FaceVerificationService faceVerificationService,
+                               @Value("${app.gallery.index.directory:gallery}") String indexDirectory) {
+        this.gallerySearchService = gallerySearchService;
+        this.faceVerificationService = faceVerificationService;
+        this.indexDirectory = Path.of(indexDirectory);
+    }
+
+    /**
+     * Map the stored index if it was built from this exact PDF with the current feature settings.
+     * The result always carries the PDF's hash so a rebuild can reuse it.
+     */
+    public Map<String, Object> openIndex(File sourcePdf) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            String sourceHash = ContentHash.ofFile(sourcePdf.toPath());
+            result.put("success", true);
+            result.put("sourceHash", sourceHash);
+            result.put("upToDate", false);
+
+            Path indexFile = indexDirectory.resolve(INDEX_FILE);
+            Path detailsFile = indexDirectory.resolve(DETAILS_FILE);
+            if (!Files.exists(indexFile) || !Files.exists(detailsFile)) {
+                result.put("message", "No gallery index found");
+                return result;
+            }
+
+            try {
+                // Check the header before mapping, so a stale index is never mapped and can be replaced
+                GalleryIndex.Header header = GalleryIndex.readHeader(indexFile);
+                if (!header.getSourceHash().equals(sourceHash)) {
+                    result.put("message", "Gallery index was built from a different PDF");
+                    return result;
+                }
+                if (header.getSettingsFingerprint() != settingsFingerprint()) {
+                    result.put("message", "Gallery index was built with different face feature settings");
+                    logger.info("Gallery index {} is stale: feature settings changed", indexFile);
+                    return result;
+                }
+
+                GalleryIndex index = GalleryIndex.open(indexFile, detailsFile);
+                result.put("upToDate", true);
+                result.put("index", index);
+                result.put("message", String.format("Gallery index loaded with %d ID card(s)", index.size()));
+                logger.info("✅ Mapped gallery index {} ({} records)", indexFile, index.size());
+
+            } catch (IOException e) {
+                logger.warn("⚠️ Ignoring unusable gallery index: {}", e.getMessage());
+                result.put("message", "Gallery index is unusable: " + e.getMessage());
+            }
+
+        } catch (IOException | SecurityException e) {
+            logger.error("Error reading source PDF for gallery index: {}", e.getMessage());
+            result.put("success", false);
+            result.put("message", "Could not read source PDF: " + e.getMessage());
+            result.put("errorCode", "GALLERY_INDEX_ERROR");
+        }
+
+        return result;
+    }
+
+    /**
+     * Featurize the extracted ID card photos and write a fresh index for the PDF hash
+     */
+    public Map<String, Object> buildIndex(String sourceHash, List<String> imagePaths, List<StudentDetails> students) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            long start = System.nanoTime();
+            FaceFeatureVector[] features = gallerySearchService.featurizeAll(imagePaths);
+
+            List<GalleryEntry> entries = new ArrayList<>();
+            for (int i = 0; i < features.length; i++) {
+                if (features[i] != null) {
+                    entries.add(new GalleryEntry(imagePaths.get(i), students.get(i), features[i]));
+                }
+            }
+
+            Files.createDirectories(indexDirectory);
+            Path indexFile = indexDirectory.resolve(INDEX_FILE);
+            Path detailsFile = indexDirectory.resolve(DETAILS_FILE);
+            GalleryIndex.write(indexFile, detailsFile, sourceHash, settingsFingerprint(), entries);
+            GalleryIndex index = GalleryIndex.open(indexFile, detailsFile);
+
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            int skipped = imagePaths.size() - entries.size();
+
+            result.put("success", true);
+            result.put("index", index);
+            result.put("indexed", entries.size());
+            result.put("skipped", skipped);
+            result.put("message", String.format("Indexed %d ID card(s) in %d ms (%d skipped)",
+                                                entries.size(), elapsedMillis, skipped));
+            logger.info("✅ Built gallery index {}: {} records, {} skipped, {} ms",
+                        indexFile, entries.size(), skipped, elapsedMillis);
+
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error building gallery index: {}", e.getMessage());
+            result.put("success", false);
+            result.put("message", "Gallery index build failed: " + e.getMessage());
+            result.put("errorCode", "GALLERY_INDEX_ERROR");
+        }
+
+        return result;
+    }
+
+    /**
+     * First 32 bits of the SHA-256 of the current feature settings
+     */
+    private int settingsFingerprint() {
+        String settings = faceVerificationService.getFeatureSettings();
+        return Integer.parseUnsignedInt(ContentHash.of(settings.getBytes(StandardCharsets.UTF_8)).substring(0, 8), 16);
+    }
+}
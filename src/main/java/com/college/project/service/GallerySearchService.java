@@ -0,0 +1,476 @@
+package com.college.project.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.college.project.gallery.GalleryIndex;
+import com.college.project.gallery.LshIndex;
+import com.college.project.gallery.QuantizedIndex;
+import com.college.project.imaging.PerceptualHash;
+import com.college.project.model.ColorHistogram;
+import com.college.project.model.ComparisonMethod;
+import com.college.project.model.FaceFeatureVector;
+import com.college.project.model.GalleryMatch;
+import com.college.project.model.LbpHistogram;
+import com.college.project.model.StudentDetails;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Gallery Search Service
+ * Parallel 1:N search of one probe face against a gallery of ID card photos
+ */
+@Service
+public class GallerySearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GallerySearchService.class);
+
+    // Smallest slice of the gallery a worker scores without splitting further
+    private static final int MIN_CHUNK_SIZE = 4;
+
+    // Fixed so that rebuilding the LSH tables for the same gallery gives the same buckets
+    private static final long LSH_SEED = 0x5EEDL;
+
+    // Score of an entry the cascade rejected on an upper bound; kept out of the ranking like a failure
+    private static final double BOUND_REJECTED = Double.NEGATIVE_INFINITY;
+
+    private final FaceVerificationService faceVerificationService;
+    private final ForkJoinPool pool;
+
+    // Approximate search settings
+    private final int annExactThreshold;
+    private final int annTables;
+    private final int annHashesPerTable;
+    private final double annBucketWidth;
+
+    // Perceptual-hash prefilter settings
+    private final int phashMaxDistance;
+    private final int phashMinSurvivors;
+
+    // Int8 first pass: candidates kept for the exact re-rank (0 = disabled)
+    private final int quantizedRerank;
+
+    // LSH tables and int8 copies per mapped gallery index, dropped together with the index
+    private final Map<GalleryIndex, LshIndex> lshIndexes = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<GalleryIndex, QuantizedIndex> quantizedIndexes = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public GallerySearchService(FaceVerificationService faceVerificationService,
+                                @Value("${app.gallery.search.parallelism:0}") int parallelism,
+                                @Value("${app.gallery.ann.exact-threshold:2000}") int annExactThreshold,
+                                @Value("${app.gallery.ann.tables:8}") int annTables,
+                                @Value("${app.gallery.ann.hashes-per-table:4}") int annHashesPerTable,
+                                @Value("${app.gallery.ann.bucket-width:0.1}") double annBucketWidth,
+                                @Value("${app.gallery.phash.max-distance:20}") int phashMaxDistance,
+                                @Value("${app.gallery.phash.min-survivors:32}") int phashMinSurvivors,
+                                @Value("${app.gallery.quantized.rerank:256}") int quantizedRerank) {
+        this.faceVerificationService = faceVerificationService;
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(workers);
+        this.annExactThreshold = annExactThreshold;
+        this.annTables = annTables;
+        this.annHashesPerTable = annHashesPerTable;
+        this.annBucketWidth = annBucketWidth;
+        this.phashMaxDistance = phashMaxDistance;
+        this.phashMinSurvivors = phashMinSurvivors;
+        this.quantizedRerank = quantizedRerank;
+        logger.info("✅ Gallery search initialized with {} worker(s), approximate search above {} records",
+                    workers, annExactThreshold);
+    }
+
+    /**
+     * Search a persistent gallery index. Records are scored straight from the
+     * mapped file, so no gallery image is decoded.
+     *
+     * Galleries below the exact-search threshold are scanned in full. Larger ones
+     * are narrowed to LSH candidates first and only those are scored exactly; if
+     * the probe's buckets hold fewer than K records the full scan is used instead.
+     * With the int8 pass enabled, only the candidates nearest by quantized distance go on.
+     * The remaining candidates are then cut down by perceptual-hash distance and scored with the
+     * configured comparison method; LBP histograms are read from the records only when it compares texture.
+     * Records the cascade rejects on its geometry bound are counted but never ranked, since the bound is
+     * not a similarity.
+     */
+    public Map<String, Object> search(String probePath, GalleryIndex index, int topK) {
+        Map<String, Object> probe = faceVerificationService.extractFaceFeatures(probePath);
+        if (!(Boolean) probe.get("success")) {
+            return probeFailure(probe);
+        }
+        FaceFeatureVector probeFeatures = (FaceFeatureVector) probe.get("features");
+        ComparisonMethod method = faceVerificationService.getComparisonMethod();
+        if (method.usesTexture() && index.getLbpGridSize() == 0) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("message", "Gallery index has no LBP histograms for " + method.getLabel() + "; rebuild it");
+            result.put("errorCode", "GALLERY_SEARCH_ERROR");
+            return result;
+        }
+
+        int[] candidates = null;
+        if (annExactThreshold >= 0 && index.size() >= annExactThreshold) {
+            candidates = lshIndex(index).candidates(probeFeatures);
+            if (candidates.length < Math.min(topK, index.size())) {
+                logger.debug("LSH returned {} candidate(s) for top-{}, falling back to exact search",
+                             candidates.length, topK);
+                candidates = null;
+            }
+        }
+
+        String strategy = candidates == null ? "exact" : "lsh";
+        int quantizedRejected = 0;
+        int rerank = Math.max(quantizedRerank, topK);
+        if (quantizedRerank > 0 && candidateCount(index, candidates) > rerank) {
+            int beforeQuantized = candidateCount(index, candidates);
+            candidates = quantizedIndex(index).nearest(probeFeatures, candidates, rerank);
+            quantizedRejected = beforeQuantized - candidates.length;
+            strategy += "+int8";
+        }
+        int prefilterRejected = 0;
+        if (phashMaxDistance >= 0) {
+            int beforePrefilter = candidateCount(index, candidates);
+            candidates = prefilter(index, candidates, probeFeatures.getPerceptualHash(),
+                                   Math.max(phashMinSurvivors, topK));
+            prefilterRejected = beforePrefilter - candidateCount(index, candidates);
+            strategy += "+dhash";
+        }
+
+        int[] records = candidates;
+        int gallerySize = candidateCount(index, records);
+        Map<String, Object> result = rank(gallerySize, topK, (position, scratch) -> {
+            int record = records == null ? position : records[position];
+            faceVerificationService.compare(probeFeatures, scratch.load(index, record), method, scratch.comparison, null);
+            return true;
+        }, records, record -> index.getEntry(record).getImagePath(),
+           record -> index.getEntry(record).getStudentDetails());
+
+        result.put("method", method.getLabel());
+        result.put("strategy", strategy);
+        result.put("gallerySize", index.size());
+        result.put("quantizedRejected", quantizedRejected);
+        result.put("prefilterRejected", prefilterRejected);
+        return result;
+    }
+
+    /**
+     * Number of candidate records, where null stands for the whole index
+     */
+    private static int candidateCount(GalleryIndex index, int[] candidates) {
+        return candidates == null ? index.size() : candidates.length;
+    }
+
+    /**
+     * Keep the records whose perceptual hash is within the maximum Hamming distance
+     * of the probe's, widening the cut-off until at least minSurvivors remain.
+     * Survivors are returned in ascending record order.
+     */
+    private int[] prefilter(GalleryIndex index, int[] records, long probeHash, int minSurvivors) {
+        int count = records == null ? index.size() : records.length;
+        byte[] distances = new byte[count];
+        int[] histogram = new int[Long.SIZE + 1];
+        for (int i = 0; i < count; i++) {
+            int record = records == null ? i : records[i];
+            int distance = PerceptualHash.distance(probeHash, index.readPerceptualHash(record));
+            distances[i] = (byte) distance;
+            histogram[distance]++;
+        }
+
+        int cutoff = Math.min(phashMaxDistance, Long.SIZE);
+        int survivors = 0;
+        for (int d = 0; d <= cutoff; d++) {
+            survivors += histogram[d];
+        }
+        while (survivors < minSurvivors && cutoff < Long.SIZE) {
+            survivors += histogram[++cutoff];
+        }
+
+        int[] kept = new int[survivors];
+        for (int i = 0, k = 0; i < count; i++) {
+            if (distances[i] <= cutoff) {
+                kept[k++] = records == null ? i : records[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * LSH tables for a mapped gallery index, hashed on first use
+     */
+    private LshIndex lshIndex(GalleryIndex index) {
+        synchronized (lshIndexes) {
+            return lshIndexes.computeIfAbsent(index, key -> {
+                long start = System.nanoTime();
+                LshIndex lsh = LshIndex.build(key, annTables, annHashesPerTable, annBucketWidth, LSH_SEED);
+                logger.info("✅ Built LSH tables for {} records ({} tables x {} hashes) in {} ms",
+                            key.size(), annTables, annHashesPerTable, (System.nanoTime() - start) / 1_000_000);
+                return lsh;
+            });
+        }
+    }
+
+    /**
+     * Int8 copy of a mapped gallery index, quantized on first use
+     */
+    private QuantizedIndex quantizedIndex(GalleryIndex index) {
+        synchronized (quantizedIndexes) {
+            return quantizedIndexes.computeIfAbsent(index, key -> {
+                long start = System.nanoTime();
+                QuantizedIndex quantized = QuantizedIndex.build(key);
+                logger.info("✅ Quantized {} records to int8 ({} KB) in {} ms",
+                            key.size(), quantized.sizeInBytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+                return quantized;
+            });
+        }
+    }
+
+    /**
+     * Featurize gallery images in parallel; failed images are left null
+     */
+    public FaceFeatureVector[] featurizeAll(List<String> imagePaths) {
+        FaceFeatureVector[] features = new FaceFeatureVector[imagePaths.size()];
+        double[] ignoredScores = new double[imagePaths.size()];
+        boolean[] ignoredMatches = new boolean[imagePaths.size()];
+        String[] ignoredStages = new String[imagePaths.size()];
+        pool.invoke(new ScoreTask((index, scratch) -> {
+            Map<String, Object> extracted = faceVerificationService.extractFaceFeatures(imagePaths.get(index));
+            if ((Boolean) extracted.get("success")) {
+                features[index] = (FaceFeatureVector) extracted.get("features");
+            }
+            // Nothing is compared; the features are the output
+            return false;
+        }, ignoredScores, ignoredMatches, ignoredStages, 0, ignoredScores.length, chunkSize(ignoredScores.length)));
+        return features;
+    }
+
+    /**
+     * Score every gallery entry in parallel and assemble the ranked top-K result.
+     * When records is given, position i scores gallery record records[i]; otherwise
+     * positions are gallery indices.
+     */
+    private Map<String, Object> rank(int gallerySize, int topK, Scorer scorer, int[] records,
+                                     IntFunction<String> imagePaths, IntFunction<StudentDetails> studentDetails) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            long start = System.nanoTime();
+            double[] scores = new double[gallerySize];
+            boolean[] isMatch = new boolean[gallerySize];
+            String[] stages = new String[gallerySize];
+            pool.invoke(new ScoreTask(scorer, scores, isMatch, stages, 0, gallerySize, chunkSize(gallerySize)));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            int failed = 0;
+            int boundRejected = 0;
+            int matchCount = 0;
+            for (int i = 0; i < gallerySize; i++) {
+                if (Double.isNaN(scores[i])) {
+                    failed++;
+                } else if (scores[i] == BOUND_REJECTED) {
+                    boundRejected++;
+                } else if (isMatch[i]) {
+                    matchCount++;
+                }
+            }
+
+            List<GalleryMatch> matches = new ArrayList<>();
+            int[] ranked = selectTopK(scores, topK);
+            for (int i = 0; i < ranked.length; i++) {
+                int position = ranked[i];
+                int index = records == null ? position : records[position];
+                GalleryMatch match = new GalleryMatch(index, imagePaths.apply(index), scores[position], isMatch[position]);
+                match.setDecisionStage(stages[position]);
+                match.setStudentDetails(studentDetails.apply(index));
+                match.setRank(i + 1);
+                matches.add(match);
+            }
+
+            result.put("success", true);
+            result.put("message", String.format("Searched %d gallery image(s) in %d ms", gallerySize, elapsedMillis));
+            result.put("matches", matches);
+            result.put("matchCount", matchCount);
+            result.put("searched", gallerySize - failed);
+            result.put("failed", failed);
+            result.put("boundRejected", boundRejected);
+            result.put("elapsedMillis", elapsedMillis);
+
+            logger.info("Gallery search: {} candidates, {} matches, {} failed, {} ms",
+                        gallerySize, matchCount, failed, elapsedMillis);
+
+        } catch (RuntimeException e) {
+            logger.error("Error in gallery search: {}", e.getMessage());
+            result.put("success", false);
+            result.put("message", "Gallery search failed: " + e.getMessage());
+            result.put("errorCode", "GALLERY_SEARCH_ERROR");
+        }
+
+        return result;
+    }
+
+    private Map<String, Object> probeFailure(Map<String, Object> probe) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("message", "Probe image: " + probe.get("message"));
+        result.put("errorCode", probe.get("errorCode"));
+        return result;
+    }
+
+    /**
+     * Indices of the K highest scores in descending order; NaN scores (failed candidates) and
+     * bound rejections are skipped
+     */
+    static int[] selectTopK(double[] scores, int topK) {
+        int limit = Math.max(0, Math.min(topK, scores.length));
+        // Min-heap of the best K so far: the weakest kept candidate sits on top
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, limit), (a, b) -> {
+            int byScore = Double.compare(scores[a], scores[b]);
+            return byScore != 0 ? byScore : Integer.compare(b, a);
+        });
+
+        for (int i = 0; i < scores.length && limit > 0; i++) {
+            if (Double.isNaN(scores[i]) || scores[i] == BOUND_REJECTED) {
+                continue;
+            }
+            if (heap.size() < limit) {
+                heap.add(i);
+            } else if (scores[i] > scores[heap.peek()]) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+
+        int[] ranked = new int[heap.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = heap.poll();
+        }
+        return ranked;
+    }
+
+    private int chunkSize(int gallerySize) {
+        // A few slices per worker keeps them busy when some cards decode slower than others
+        return Math.max(MIN_CHUNK_SIZE, gallerySize / (pool.getParallelism() * 4));
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Compares one gallery entry into the scratch comparison; false marks an entry that could not be scored.
+     * The scratch is owned by the calling worker.
+     */
+    @FunctionalInterface
+    private interface Scorer {
+        boolean score(int index, Scratch scratch);
+    }
+
+    /**
+     * Per-worker state reused for every entry the worker scores. It doubles as the comparison
+     * candidate for a gallery index record, reading the record's features, colour histogram and
+     * LBP histogram in place.
+     */
+    private static final class Scratch implements FaceVerificationService.Candidate {
+        final FaceVerificationService.Comparison comparison = new FaceVerificationService.Comparison();
+        private final double[] features = new double[FaceFeatureVector.DIMENSIONS];
+        private float[] texture;
+        private GalleryIndex index;
+        private int record;
+
+        /**
+         * Point the candidate at a gallery record and read its features
+         */
+        Scratch load(GalleryIndex index, int record) {
+            this.index = index;
+            this.record = record;
+            index.readFeatures(record, features);
+            return this;
+        }
+
+        @Override
+        public double[] values() {
+            return features;
+        }
+
+        @Override
+        public double colorSimilarity(FaceFeatureVector probe) {
+            ColorHistogram probeColors = probe.getColorHistogram();
+            double colors = probeColors == null ? Double.NaN : index.colorIntersection(record, probeColors);
+            return Double.isNaN(colors) ? FaceFeatureVector.colorSimilarity(probe.rawValues(), features) : colors;
+        }
+
+        @Override
+        public double chiSquare(LbpHistogram probe) {
+            if (texture == null || texture.length != index.getLbpBinCount()) {
+                texture = new float[index.getLbpBinCount()];
+            }
+            double chiSquare = index.lbpChiSquare(record, probe, texture);
+            if (Double.isNaN(chiSquare)) {
+                throw new IllegalStateException("Gallery record " + record + " has no LBP histogram");
+            }
+            return chiSquare;
+        }
+    }
+
+    /**
+     * Scores a slice of the gallery, splitting it in half until it is small enough
+     */
+    private static class ScoreTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Scorer scorer;
+        private final double[] scores;
+        private final boolean[] matches;
+        private final String[] stages;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+
+        ScoreTask(Scorer scorer, double[] scores, boolean[] matches, String[] stages, int from, int to, int chunkSize) {
+            this.scorer = scorer;
+            this.scores = scores;
+            this.matches = matches;
+            this.stages = stages;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                Scratch scratch = new Scratch();
+                for (int i = from; i < to; i++) {
+                    if (scorer.score(i, scratch)) {
+                        FaceVerificationService.Comparison comparison = scratch.comparison;
+                        // A bound is not a similarity, so it is never ranked against scores
+                        scores[i] = comparison.isScoreBound() ? BOUND_REJECTED : comparison.getScore();
+                        matches[i] = comparison.isMatch();
+                        stages[i] = comparison.getStage();
+                    } else {
+                        scores[i] = Double.NaN;
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScoreTask(scorer, scores, matches, stages, from, middle, chunkSize),
+                      new ScoreTask(scorer, scores, matches, stages, middle, to, chunkSize));
+        }
+    }
+}
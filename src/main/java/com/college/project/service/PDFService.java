@@ -3,18 +3,24 @@ package com.college.project.service;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.imageio.ImageIO;
 
 import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.DefaultResourceCache;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDResources;
@@ -23,10 +29,14 @@ import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.college.project.model.PdfExtractionResult;
 import com.college.project.model.StudentDetails;
 
+import jakarta.annotation.PreDestroy;
+
 /**
  * PDF Service for ID Card Processing
  * Handles PDF upload, text extraction, and image extraction from college ID cards using Java
@@ -39,9 +49,36 @@ public class PDFService {
     private static final String UPLOAD_FOLDER = "uploads";
     private static final String IDCARDS_FOLDER = "idcards";
 
-    public PDFService() {
+    private static final String MEMORY_MODE_MAIN = "main-memory";
+    private static final String MEMORY_MODE_MIXED = "mixed";
+    private static final String MEMORY_MODE_TEMP_FILE = "temp-file";
+
+    // Workers for per-page image extraction; each one parses its own copy of the document
+    private final ForkJoinPool pool;
+    private final int minPagesPerWorker;
+
+    // Where each loaded document keeps its parsed streams: heap, heap up to a cap, or scratch files
+    private final String memoryMode;
+    private final long maxMainMemoryBytes;
+    private final File scratchDirectory;
+
+    public PDFService(@Value("${app.pdf.extraction.parallelism:0}") int parallelism,
+                      @Value("${app.pdf.extraction.min-pages-per-worker:8}") int minPagesPerWorker,
+                      @Value("${app.pdf.memory.mode:mixed}") String memoryMode,
+                      @Value("${app.pdf.memory.max-main-memory-bytes:16777216}") long maxMainMemoryBytes,
+                      @Value("${app.pdf.memory.scratch-dir:}") String scratchDirectory) {
+        this.memoryMode = memoryMode.trim().toLowerCase();
+        if (!List.of(MEMORY_MODE_MAIN, MEMORY_MODE_MIXED, MEMORY_MODE_TEMP_FILE).contains(this.memoryMode)) {
+            throw new IllegalArgumentException("Unknown PDF memory mode: " + memoryMode);
+        }
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(workers);
+        this.minPagesPerWorker = Math.max(1, minPagesPerWorker);
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+        this.scratchDirectory = scratchDirectory == null || scratchDirectory.isBlank() ? null : new File(scratchDirectory);
         createUploadDirectory();
         createIdCardsDirectory();
+        createScratchDirectory();
     }
 
     /**
@@ -70,197 +107,359 @@ public class PDFService {
         }
     }
 
+    /**
+     * Create the PDF scratch directory if one is configured and it doesn't exist
+     */
+    private void createScratchDirectory() {
+        if (scratchDirectory != null && !scratchDirectory.exists()) {
+            boolean created = scratchDirectory.mkdirs();
+            if (created) {
+                logger.info("📁 Created PDF scratch directory: {}", scratchDirectory);
+            }
+        }
+    }
+
+    /**
+     * Load a PDF with the configured memory settings. Parsed streams beyond the main-memory cap
+     * live in scratch files that are deleted when the document closes, and page XObjects are not
+     * cached, so each page's images can be collected once the page is done.
+     */
+    private PDDocument load(File file) throws IOException {
+        MemoryUsageSetting memoryUsage = switch (memoryMode) {
+            case MEMORY_MODE_MAIN -> MemoryUsageSetting.setupMainMemoryOnly();
+            case MEMORY_MODE_TEMP_FILE -> MemoryUsageSetting.setupTempFileOnly();
+            default -> MemoryUsageSetting.setupMixed(maxMainMemoryBytes);
+        };
+        if (scratchDirectory != null) {
+            memoryUsage.setTempDir(scratchDirectory);
+        }
+
+        PDDocument document = PDDocument.load(file, memoryUsage);
+        document.setResourceCache(new PageScopedResourceCache());
+        return document;
+    }
+
     /**
      * Validate PDF file
      */
     public Map<String, Object> validatePDF(String filePath) {
+        return validationResult(process(filePath, false, false));
+    }
+
+    /**
+     * Extract images from PDF file
+     */
+    public Map<String, Object> extractImagesFromPDF(String filePath) {
+        PdfExtractionResult extraction = process(filePath, false, true);
+        if (!extraction.isValid()) {
+            return validationResult(extraction);
+        }
+
         Map<String, Object> result = new HashMap<>();
-        
+        if (!extraction.hasImages()) {
+            result.put("success", false);
+            result.put("message", extraction.getImageMessage());
+            result.put("errorCode", extraction.getImageErrorCode());
+            return result;
+        }
+
+        result.put("success", true);
+        result.put("message", String.format("Successfully extracted %d images", extraction.getImages().size()));
+        result.put("images", imageInfos(extraction));
+        result.put("totalImages", extraction.getImages().size());
+        result.put("studentPhoto", imageInfo(extraction.getStudentPhoto()));
+        return result;
+    }
+
+    /**
+     * Extract text content from PDF file
+     */
+    public Map<String, Object> extractTextFromPDF(String filePath) {
+        PdfExtractionResult extraction = process(filePath, true, false);
+        if (!extraction.isValid()) {
+            return validationResult(extraction);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        if (!extraction.hasText()) {
+            result.put("success", false);
+            result.put("message", extraction.getTextMessage());
+            result.put("errorCode", extraction.getTextErrorCode());
+            return result;
+        }
+
+        result.put("success", true);
+        result.put("message", "Text extracted successfully");
+        result.put("text", extraction.getText());
+        result.put("studentDetails", extraction.getStudentDetails());
+        result.put("textLength", extraction.getText().length());
+        return result;
+    }
+
+    /**
+     * Validate a PDF and extract both its text and its images from a single parse of the document
+     */
+    public PdfExtractionResult processPdf(String filePath) {
+        return process(filePath, true, true);
+    }
+
+    /**
+     * Open the document once and run validation plus the requested extractions against it
+     */
+    private PdfExtractionResult process(String filePath, boolean withText, boolean withImages) {
+        PdfExtractionResult result = new PdfExtractionResult();
+        File file = new File(filePath);
+        PDDocument document = open(file, result);
+        if (document == null) {
+            return result;
+        }
+
+        try (document) {
+            if (withText) {
+                extractText(document, result);
+            }
+            if (withImages) {
+                extractImages(document, file, result);
+            }
+        } catch (IOException e) {
+            logger.warn("⚠️ Could not close PDF {}: {}", filePath, e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Validate and load a PDF file; returns null, with the reason recorded on the result, if it is not usable
+     */
+    private PDDocument open(File file, PdfExtractionResult result) {
         try {
-            File file = new File(filePath);
-            
             if (!file.exists()) {
-                result.put("valid", false);
-                result.put("message", "File does not exist");
-                result.put("errorCode", "FILE_NOT_FOUND");
-                return result;
+                result.invalid("File does not exist", "FILE_NOT_FOUND");
+                return null;
             }
 
             // Check file extension
             String fileName = file.getName().toLowerCase();
             if (!fileName.endsWith(".pdf")) {
-                result.put("valid", false);
-                result.put("message", "Invalid file format. Only PDF files are allowed");
-                result.put("errorCode", "INVALID_FORMAT");
-                return result;
+                result.invalid("Invalid file format. Only PDF files are allowed", "INVALID_FORMAT");
+                return null;
             }
 
             // Try to open PDF with PDFBox
-            try (PDDocument document = PDDocument.load(file)) {
-                int pageCount = document.getNumberOfPages();
-                
-                if (pageCount == 0) {
-                    result.put("valid", false);
-                    result.put("message", "PDF file is empty");
-                    result.put("errorCode", "EMPTY_PDF");
-                    return result;
-                }
-
-                result.put("valid", true);
-                result.put("message", "Valid PDF file");
-                result.put("pageCount", pageCount);
-                
+            PDDocument document;
+            try {
+                document = load(file);
             } catch (IOException e) {
-                result.put("valid", false);
-                result.put("message", "Corrupted or invalid PDF file: " + e.getMessage());
-                result.put("errorCode", "CORRUPTED_PDF");
-                return result;
+                result.invalid("Corrupted or invalid PDF file: " + e.getMessage(), "CORRUPTED_PDF");
+                return null;
+            }
+
+            int pageCount = document.getNumberOfPages();
+            if (pageCount == 0) {
+                closeQuietly(document);
+                result.invalid("PDF file is empty", "EMPTY_PDF");
+                return null;
             }
 
+            result.setValid(true);
+            result.setMessage("Valid PDF file");
+            result.setPageCount(pageCount);
+            return document;
+
         } catch (SecurityException e) {
             logger.error("Security error validating PDF: {}", e.getMessage());
-            result.put("valid", false);
-            result.put("message", "PDF validation failed: " + e.getMessage());
-            result.put("errorCode", "VALIDATION_ERROR");
+            result.invalid("PDF validation failed: " + e.getMessage(), "VALIDATION_ERROR");
         } catch (RuntimeException e) {
             logger.error("Runtime error validating PDF: {}", e.getMessage());
-            result.put("valid", false);
-            result.put("message", "PDF validation failed: " + e.getMessage());
-            result.put("errorCode", "VALIDATION_ERROR");
+            result.invalid("PDF validation failed: " + e.getMessage(), "VALIDATION_ERROR");
         }
+        return null;
+    }
 
-        return result;
+    private void closeQuietly(PDDocument document) {
+        try {
+            document.close();
+        } catch (IOException e) {
+            logger.warn("⚠️ Could not close PDF: {}", e.getMessage());
+        }
     }
 
     /**
-     * Extract images from PDF file
+     * Save every photo-sized image XObject of the document to the upload folder, in page order.
+     * Long documents are split into page ranges extracted in parallel.
      */
-    public Map<String, Object> extractImagesFromPDF(String filePath) {
-        Map<String, Object> result = new HashMap<>();
-        
-        // Validate PDF first
-        Map<String, Object> validation = validatePDF(filePath);
-        if (!(Boolean) validation.get("valid")) {
-            return validation;
+    private void extractImages(PDDocument document, File file, PdfExtractionResult result) {
+        int pageCount = document.getNumberOfPages();
+        int workers = Math.min(pool.getParallelism(), pageCount / minPagesPerWorker);
+        List<PdfExtractionResult.ExtractedImage> extractedImages = new ArrayList<>();
+        try {
+            if (workers > 1) {
+                extractImagesInParallel(document, file, workers, extractedImages);
+            } else {
+                extractPageImages(document, 0, pageCount, extractedImages);
+            }
+        } catch (IOException e) {
+            logger.error("Error extracting images from PDF: {}", e.getMessage());
+            result.setImageError("Image extraction failed: " + e.getMessage(), "EXTRACTION_ERROR");
+            return;
         }
 
-        try (PDDocument document = PDDocument.load(new File(filePath))) {
-            List<Map<String, Object>> extractedImages = new ArrayList<>();
-            
-            for (int pageNum = 0; pageNum < document.getNumberOfPages(); pageNum++) {
-                PDPage page = document.getPage(pageNum);
-                PDResources resources = page.getResources();
-                
-                for (COSName name : resources.getXObjectNames()) {
-                    PDXObject xObject = resources.getXObject(name);
-                    
-                    if (xObject instanceof PDImageXObject imageXObject) {
-                        
-                        // Skip small images (likely not photos)
-                        if (imageXObject.getWidth() < 50 || imageXObject.getHeight() < 50) {
-                            continue;
-                        }
+        if (extractedImages.isEmpty()) {
+            result.setImageError("No images found in the PDF file", "NO_IMAGES_FOUND");
+            return;
+        }
+
+        result.setImages(extractedImages);
+        logger.info("✅ Extracted {} images from PDF", extractedImages.size());
+    }
 
-                        // Extract and save image
-                        BufferedImage bufferedImage = imageXObject.getImage();
-                        String imageFileName = String.format("extracted_image_p%d_%s.png", 
-                                                            pageNum + 1, name.getName());
-                        String imagePath = UPLOAD_FOLDER + File.separator + imageFileName;
-                        
-                        File imageFile = new File(imagePath);
-                        ImageIO.write(bufferedImage, "PNG", imageFile);
-
-                        Map<String, Object> imageInfo = new HashMap<>();
-                        imageInfo.put("filename", imageFileName);
-                        imageInfo.put("path", imagePath);
-                        imageInfo.put("page", pageNum + 1);
-                        imageInfo.put("width", imageXObject.getWidth());
-                        imageInfo.put("height", imageXObject.getHeight());
-                        imageInfo.put("sizeBytes", imageFile.length());
-
-                        extractedImages.add(imageInfo);
-                        
-                        logger.info("✅ Extracted image: {} ({}x{})", 
-                                  imageFileName, imageXObject.getWidth(), imageXObject.getHeight());
+    /**
+     * Split the pages into one contiguous range per worker. The calling thread takes the first
+     * range on the already open document; the others load their own copy, since a PDDocument
+     * must not be shared between threads. Ranges are appended in order, so images stay in page order.
+     */
+    private void extractImagesInParallel(PDDocument document, File file, int workers,
+                                         List<PdfExtractionResult.ExtractedImage> extractedImages) throws IOException {
+        int pageCount = document.getNumberOfPages();
+        List<Future<List<PdfExtractionResult.ExtractedImage>>> ranges = new ArrayList<>();
+        try {
+            for (int worker = 1; worker < workers; worker++) {
+                int from = (int) ((long) pageCount * worker / workers);
+                int to = (int) ((long) pageCount * (worker + 1) / workers);
+                ranges.add(pool.submit(() -> {
+                    try (PDDocument copy = load(file)) {
+                        List<PdfExtractionResult.ExtractedImage> images = new ArrayList<>();
+                        extractPageImages(copy, from, to, images);
+                        return images;
                     }
-                }
+                }));
             }
 
-            if (extractedImages.isEmpty()) {
-                result.put("success", false);
-                result.put("message", "No images found in the PDF file");
-                result.put("errorCode", "NO_IMAGES_FOUND");
-                return result;
+            extractPageImages(document, 0, pageCount / workers, extractedImages);
+            for (Future<List<PdfExtractionResult.ExtractedImage>> range : ranges) {
+                extractedImages.addAll(range.get());
+            }
+            logger.info("✅ Extracted images from {} pages with {} workers", pageCount, workers);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Image extraction interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
             }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            // Stop ranges that have not started yet when another range failed
+            for (Future<List<PdfExtractionResult.ExtractedImage>> range : ranges) {
+                range.cancel(false);
+            }
+        }
+    }
 
-            // Find the largest image (likely to be the student photo)
-            Map<String, Object> studentPhoto = extractedImages.stream()
-                    .max(Comparator.comparingInt(img -> 
-                            (Integer) img.get("width") * (Integer) img.get("height")))
-                    .orElse(null);
+    /**
+     * Save the photo-sized images of pages [from, to) of the document
+     */
+    private void extractPageImages(PDDocument document, int from, int to,
+                                   List<PdfExtractionResult.ExtractedImage> extractedImages) throws IOException {
+        for (int pageNum = from; pageNum < to; pageNum++) {
+            PDPage page = document.getPage(pageNum);
+            PDResources resources = page.getResources();
 
-            result.put("success", true);
-            result.put("message", String.format("Successfully extracted %d images", extractedImages.size()));
-            result.put("images", extractedImages);
-            result.put("totalImages", extractedImages.size());
-            result.put("studentPhoto", studentPhoto);
+            for (COSName name : resources.getXObjectNames()) {
+                PDXObject xObject = resources.getXObject(name);
 
-            logger.info("✅ Extracted {} images from PDF", extractedImages.size());
+                if (xObject instanceof PDImageXObject imageXObject) {
 
-        } catch (IOException e) {
-            logger.error("Error extracting images from PDF: {}", e.getMessage());
-            result.put("success", false);
-            result.put("message", "Image extraction failed: " + e.getMessage());
-            result.put("errorCode", "EXTRACTION_ERROR");
-        }
+                    // Skip small images (likely not photos)
+                    if (imageXObject.getWidth() < 50 || imageXObject.getHeight() < 50) {
+                        continue;
+                    }
 
-        return result;
+                    // Extract and save image
+                    BufferedImage bufferedImage = imageXObject.getImage();
+                    String imageFileName = String.format("extracted_image_p%d_%s.png",
+                                                        pageNum + 1, name.getName());
+                    String imagePath = UPLOAD_FOLDER + File.separator + imageFileName;
+
+                    File imageFile = new File(imagePath);
+                    ImageIO.write(bufferedImage, "PNG", imageFile);
+
+                    extractedImages.add(new PdfExtractionResult.ExtractedImage(imageFileName, imagePath,
+                            pageNum + 1, imageXObject.getWidth(), imageXObject.getHeight(), imageFile.length()));
+
+                    logger.info("✅ Extracted image: {} ({}x{})",
+                              imageFileName, imageXObject.getWidth(), imageXObject.getHeight());
+                }
+            }
+        }
     }
 
     /**
-     * Extract text content from PDF file
+     * Strip the document's text and parse student details from it
      */
-    public Map<String, Object> extractTextFromPDF(String filePath) {
-        Map<String, Object> result = new HashMap<>();
-        
-        // Validate PDF first
-        Map<String, Object> validation = validatePDF(filePath);
-        if (!(Boolean) validation.get("valid")) {
-            return validation;
-        }
-
-        try (PDDocument document = PDDocument.load(new File(filePath))) {
+    private void extractText(PDDocument document, PdfExtractionResult result) {
+        try {
             PDFTextStripper textStripper = new PDFTextStripper();
             String extractedText = textStripper.getText(document);
 
             if (extractedText == null || extractedText.trim().isEmpty()) {
-                result.put("success", false);
-                result.put("message", "No text content found in the PDF");
-                result.put("errorCode", "NO_TEXT_FOUND");
-                return result;
+                result.setTextError("No text content found in the PDF", "NO_TEXT_FOUND");
+                return;
             }
 
             // Parse student details from extracted text
-            StudentDetails studentDetails = parseStudentDetails(extractedText);
-
-            result.put("success", true);
-            result.put("message", "Text extracted successfully");
-            result.put("text", extractedText.trim());
-            result.put("studentDetails", studentDetails);
-            result.put("textLength", extractedText.trim().length());
+            result.setText(extractedText.trim());
+            result.setStudentDetails(parseStudentDetails(extractedText));
 
             logger.info("✅ Text extraction completed successfully");
 
         } catch (IOException e) {
             logger.error("Error extracting text from PDF: {}", e.getMessage());
-            result.put("success", false);
-            result.put("message", "Text extraction failed: " + e.getMessage());
-            result.put("errorCode", "TEXT_EXTRACTION_ERROR");
+            result.setTextError("Text extraction failed: " + e.getMessage(), "TEXT_EXTRACTION_ERROR");
         }
+    }
 
+    /**
+     * Validation outcome in the map form returned by validatePDF
+     */
+    private Map<String, Object> validationResult(PdfExtractionResult extraction) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("valid", extraction.isValid());
+        result.put("message", extraction.getMessage());
+        if (extraction.isValid()) {
+            result.put("pageCount", extraction.getPageCount());
+        } else {
+            result.put("success", false);
+            result.put("errorCode", extraction.getErrorCode());
+        }
         return result;
     }
 
+    private List<Map<String, Object>> imageInfos(PdfExtractionResult extraction) {
+        List<Map<String, Object>> infos = new ArrayList<>();
+        for (PdfExtractionResult.ExtractedImage image : extraction.getImages()) {
+            infos.add(imageInfo(image));
+        }
+        return infos;
+    }
+
+    private Map<String, Object> imageInfo(PdfExtractionResult.ExtractedImage image) {
+        if (image == null) {
+            return null;
+        }
+        Map<String, Object> imageInfo = new HashMap<>();
+        imageInfo.put("filename", image.getFilename());
+        imageInfo.put("path", image.getPath());
+        imageInfo.put("page", image.getPage());
+        imageInfo.put("width", image.getWidth());
+        imageInfo.put("height", image.getHeight());
+        imageInfo.put("sizeBytes", image.getSizeBytes());
+        return imageInfo;
+    }
+
     /**
      * Parse student details from extracted text using regex patterns
      */
@@ -371,10 +570,10 @@ public class PDFService {
         try {
             logger.info("Processing ID card PDF: {}", idCardFile.getName());
             
-            // Validate the PDF file
-            Map<String, Object> validation = validatePDF(idCardFile.getPath());
-            if (!(Boolean) validation.get("valid")) {
-                return validation;
+            // Validate and extract in one pass over the PDF
+            PdfExtractionResult extraction = processPdf(idCardFile.getPath());
+            if (!extraction.isValid()) {
+                return validationResult(extraction);
             }
             
             // Copy PDF to idcards folder with timestamp
@@ -390,8 +589,8 @@ public class PDFService {
             
             logger.info("✅ ID card PDF saved to: {}", savedPath);
             
-            // Process the PDF (extract text and images)
-            Map<String, Object> processingResults = processIdCard(idCardFile.getPath());
+            // Combine the extracted text and images
+            Map<String, Object> processingResults = processIdCard(extraction);
             
             // Prepare file info
             Map<String, Object> fileInfo = new HashMap<>();
@@ -420,48 +619,79 @@ public class PDFService {
      * Complete processing of ID card PDF - extract both images and text
      */
     public Map<String, Object> processIdCard(String filePath) {
-        Map<String, Object> result = new HashMap<>();
-        
         try {
             logger.info("Processing ID card PDF: {}", filePath);
-
-            // Extract text
-            Map<String, Object> textResult = extractTextFromPDF(filePath);
-            
-            // Extract images
-            Map<String, Object> imageResult = extractImagesFromPDF(filePath);
-
-            // Combine results
-            Map<String, Object> images = new HashMap<>();
-            images.put("success", imageResult.get("success"));
-            images.put("totalImages", imageResult.getOrDefault("totalImages", 0));
-            images.put("images", imageResult.getOrDefault("images", new ArrayList<>()));
-            images.put("studentPhoto", imageResult.get("studentPhoto"));
-
-            Map<String, Object> text = new HashMap<>();
-            text.put("success", textResult.get("success"));
-            text.put("extractedText", textResult.getOrDefault("text", ""));
-            text.put("studentDetails", textResult.getOrDefault("studentDetails", new StudentDetails()));
-
-            result.put("success", true);
-            result.put("message", "ID card processed successfully");
-            result.put("images", images);
-            result.put("text", text);
-
-            // Check if we have minimum required data (text extraction should work)
-            if (!(Boolean) textResult.get("success")) {
-                result.put("success", false);
-                result.put("message", "Failed to extract text from ID card");
-                result.put("errorCode", "TEXT_EXTRACTION_FAILED");
-            }
+            return processIdCard(processPdf(filePath));
 
         } catch (RuntimeException e) {
             logger.error("Error processing ID card: {}", e.getMessage());
+            Map<String, Object> result = new HashMap<>();
             result.put("success", false);
             result.put("message", "ID card processing failed: " + e.getMessage());
             result.put("errorCode", "PROCESSING_ERROR");
+            return result;
+        }
+    }
+
+    /**
+     * Combine the text and image results of a processed ID card PDF
+     */
+    private Map<String, Object> processIdCard(PdfExtractionResult extraction) {
+        Map<String, Object> result = new HashMap<>();
+        if (!extraction.isValid()) {
+            result.put("success", false);
+            result.put("message", extraction.getMessage());
+            result.put("errorCode", extraction.getErrorCode());
+            return result;
+        }
+
+        // Combine results
+        Map<String, Object> images = new HashMap<>();
+        images.put("success", extraction.hasImages());
+        images.put("totalImages", extraction.getImages().size());
+        images.put("images", imageInfos(extraction));
+        images.put("studentPhoto", imageInfo(extraction.getStudentPhoto()));
+
+        Map<String, Object> text = new HashMap<>();
+        text.put("success", extraction.hasText());
+        text.put("extractedText", extraction.hasText() ? extraction.getText() : "");
+        text.put("studentDetails", extraction.hasText() ? extraction.getStudentDetails() : new StudentDetails());
+
+        result.put("success", true);
+        result.put("message", "ID card processed successfully");
+        result.put("images", images);
+        result.put("text", text);
+        result.put("pageCount", extraction.getPageCount());
+
+        // Check if we have minimum required data (text extraction should work)
+        if (!extraction.hasText()) {
+            result.put("success", false);
+            result.put("message", "Failed to extract text from ID card");
+            result.put("errorCode", "TEXT_EXTRACTION_FAILED");
         }
 
         return result;
     }
-}
\ No newline at end of file
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Resource cache that keeps fonts and colour spaces for reuse across pages but never holds on
+     * to XObjects: every ID card photo is drawn on one page only, so keeping it would just pin the
+     * decoded image until the whole document closes
+     */
+    private static final class PageScopedResourceCache extends DefaultResourceCache {
+
+        @Override
+        public void put(COSObject indirect, PDXObject xobject) {
+            // Not cached
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.college.project.gallery;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.college.project.model.ColorHistogram;
+import com.college.project.model.FaceFeatureVector;
+import com.college.project.model.StudentDetails;
+
+/**
+ * The int8 first pass must keep the records the basic similarity ranks highest,
+ * so the full-precision re-rank still sees them
+ */
+class QuantizedIndexTest {
+
+    private static final int GALLERY_SIZE = 4000;
+    private static final int PROBES = 100;
+    // The shipped app.gallery.quantized.rerank
+    private static final int RERANK = 256;
+    private static final int PIXELS = 500;
+
+    @TempDir
+    Path directory;
+
+    private Random random;
+    private FaceFeatureVector[] gallery;
+    private QuantizedIndex quantized;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        random = new Random(0x5EED);
+        gallery = new FaceFeatureVector[GALLERY_SIZE];
+        List<GalleryEntry> entries = new ArrayList<>();
+        for (int record = 0; record < GALLERY_SIZE; record++) {
+            gallery[record] = randomFace();
+            entries.add(new GalleryEntry("card-" + record + ".jpg", new StudentDetails(), gallery[record]));
+        }
+        Path indexFile = directory.resolve("gallery.idx");
+        Path detailsFile = directory.resolve("gallery.json");
+        GalleryIndex.write(indexFile, detailsFile, "00".repeat(32), 0, entries);
+        quantized = QuantizedIndex.build(GalleryIndex.open(indexFile, detailsFile));
+    }
+
+    @Test
+    void keepsTheBestBasicMatch() {
+        int kept = 0;
+        for (int probe = 0; probe < PROBES; probe++) {
+            FaceFeatureVector features = randomFace();
+            int[] nearest = quantized.nearest(features, null, RERANK);
+            assertEquals(RERANK, nearest.length);
+
+            int best = 0;
+            for (int record = 1; record < GALLERY_SIZE; record++) {
+                if (basic(features, gallery[record]) > basic(features, gallery[best])) {
+                    best = record;
+                }
+            }
+            for (int record : nearest) {
+                if (record == best) {
+                    kept++;
+                    break;
+                }
+            }
+        }
+        assertTrue(kept >= PROBES * 95 / 100, "Best match kept for only " + kept + " of " + PROBES + " probes");
+    }
+
+    @Test
+    void limitsToTheGivenRecords() {
+        int[] records = { 3, 17, 42, 99, 1000 };
+        int[] nearest = quantized.nearest(gallery[42], records, records.length);
+        assertArrayEquals(records, nearest);
+        assertEquals(42, quantized.nearest(gallery[42], records, 1)[0]);
+    }
+
+    /**
+     * A face with a Gaussian colour distribution per channel and consistent mean features
+     */
+    private FaceFeatureVector randomFace() {
+        double[] values = new double[FaceFeatureVector.DIMENSIONS];
+        int[] counts = new int[ColorHistogram.BINS];
+        int binWidth = 256 / ColorHistogram.BINS_PER_CHANNEL;
+        for (int channel = 0; channel < 3; channel++) {
+            double center = 40 + random.nextDouble() * 170;
+            double spread = 8 + random.nextDouble() * 40;
+            double sum = 0;
+            for (int pixel = 0; pixel < PIXELS; pixel++) {
+                int value = (int) Math.max(0, Math.min(255, center + spread * random.nextGaussian()));
+                counts[channel * ColorHistogram.BINS_PER_CHANNEL + value / binWidth]++;
+                sum += value;
+            }
+            values[FaceFeatureVector.MEAN_RED + channel] = sum / PIXELS;
+        }
+        values[FaceFeatureVector.MEAN_INTENSITY] = 0.299 * values[FaceFeatureVector.MEAN_RED]
+                + 0.587 * values[FaceFeatureVector.MEAN_GREEN] + 0.114 * values[FaceFeatureVector.MEAN_BLUE];
+        double width = 60 + random.nextDouble() * 140;
+        double height = width * (1.0 + 0.1 * random.nextGaussian());
+        values[FaceFeatureVector.WIDTH] = width;
+        values[FaceFeatureVector.HEIGHT] = height;
+        values[FaceFeatureVector.ASPECT_RATIO] = width / height;
+        values[FaceFeatureVector.FACE_AREA] = width * height;
+        return FaceFeatureVector.fromArray(values, random.nextLong(), ColorHistogram.fromCounts(counts));
+    }
+
+    private static double basic(FaceFeatureVector a, FaceFeatureVector b) {
+        return 0.3 * a.intensitySimilarity(b) + 0.2 * a.ratioSimilarity(b)
+                + 0.2 * a.sizeSimilarity(b) + 0.3 * a.colorSimilarity(b);
+    }
+}
@@ -0,0 +1,118 @@
+package com.college.project.imaging;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.college.project.model.LbpHistogram;
+
+/**
+ * The vector backend must return what the scalar backend returns, including for
+ * masked tails and lengths that are not a multiple of the lane count
+ */
+class KernelBackendParityTest {
+
+    // Every length up to a few lane counts past the widest species, then a full 8x8 LBP grid
+    private static final int MAX_SHORT_LENGTH = 70;
+    private static final int LBP_LENGTH = 8 * 8 * LbpHistogram.BINS;
+    private static final int TRIALS = 20;
+
+    // The float reductions are designed to round identically; allow for the last bit only
+    private static final double TOLERANCE = 1e-9;
+
+    private final KernelBackend scalar = new ScalarKernelBackend();
+    private KernelBackend vector;
+    private Random random;
+
+    @BeforeEach
+    void setUp() {
+        random = new Random(0x5EED);
+        try {
+            vector = new VectorKernelBackend();
+        } catch (IllegalStateException | LinkageError e) {
+            vector = null;
+        }
+        assumeTrue(vector != null, "Vector API backend is not available on this host");
+    }
+
+    @Test
+    void chiSquareSumMatchesScalar() {
+        for (int length = 0; length <= MAX_SHORT_LENGTH; length++) {
+            checkChiSquare(length);
+        }
+        checkChiSquare(LBP_LENGTH);
+    }
+
+    @Test
+    void intersectionSumMatchesScalar() {
+        for (int length = 0; length <= MAX_SHORT_LENGTH; length++) {
+            checkIntersection(length);
+        }
+        checkIntersection(LBP_LENGTH);
+    }
+
+    @Test
+    void packedRgbRowMatchesScalar() {
+        for (int width = 0; width <= MAX_SHORT_LENGTH; width++) {
+            checkPackedRgbRow(width, 16, 8, 0);
+            checkPackedRgbRow(width, 0, 8, 16);
+        }
+        checkPackedRgbRow(1021, 16, 8, 0);
+    }
+
+    private void checkChiSquare(int length) {
+        for (int trial = 0; trial < TRIALS; trial++) {
+            float[] a = histogram(length);
+            float[] b = histogram(length);
+            assertEquals(scalar.chiSquareSum(a, b), vector.chiSquareSum(a, b), TOLERANCE, "length " + length);
+            assertEquals(scalar.chiSquareSum(a, a), vector.chiSquareSum(a, a), TOLERANCE, "length " + length);
+        }
+    }
+
+    private void checkIntersection(int length) {
+        for (int trial = 0; trial < TRIALS; trial++) {
+            float[] a = histogram(length);
+            float[] b = histogram(length);
+            assertEquals(scalar.intersectionSum(a, b), vector.intersectionSum(a, b), TOLERANCE, "length " + length);
+        }
+    }
+
+    private void checkPackedRgbRow(int width, int redShift, int greenShift, int blueShift) {
+        // Start inside the source and target arrays so the kernels honour both offsets
+        int index = random.nextInt(5);
+        int lumaOffset = random.nextInt(5);
+        int[] data = new int[index + width];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextInt();
+        }
+
+        int[] expectedLuma = new int[lumaOffset + width];
+        int[] actualLuma = new int[lumaOffset + width];
+        long[] expectedSums = {1, 2, 3, 4};
+        long[] actualSums = {1, 2, 3, 4};
+        scalar.packedRgbRow(data, index, width, redShift, greenShift, blueShift, expectedLuma, lumaOffset, expectedSums);
+        vector.packedRgbRow(data, index, width, redShift, greenShift, blueShift, actualLuma, lumaOffset, actualSums);
+        assertArrayEquals(expectedLuma, actualLuma, "luma, width " + width);
+        assertArrayEquals(expectedSums, actualSums, "sums, width " + width);
+
+        int[] lumaOnly = new int[lumaOffset + width];
+        vector.packedRgbRow(data, index, width, redShift, greenShift, blueShift, lumaOnly, lumaOffset, null);
+        assertArrayEquals(expectedLuma, lumaOnly, "luma without sums, width " + width);
+    }
+
+    /**
+     * Random normalized bins with about a third left empty, as in sparse LBP cells
+     */
+    private float[] histogram(int length) {
+        float[] bins = new float[length];
+        for (int i = 0; i < length; i++) {
+            bins[i] = random.nextInt(3) == 0 ? 0f : random.nextFloat();
+        }
+        return bins;
+    }
+}